@@ -0,0 +1,19 @@
+-- ============================================================
+-- KEYSET PAGINATION INDEXES (upgrade for existing databases)
+-- ============================================================
+-- schema.sql already creates these. Run this once on a database that was
+-- created with the older single-column indexes:
+--   mysql -u root -p expense_tracker_db < sql/keyset_indexes.sql
+--
+-- New indexes are added before the old ones are dropped because the
+-- foreign keys on group_id / from_user / to_user need an index at all times.
+-- ============================================================
+
+CREATE INDEX idx_expenses_group_created ON expenses (group_id, created_at, expense_id);
+DROP INDEX idx_expenses_group ON expenses;
+
+CREATE INDEX idx_trans_from_created ON transactions (from_user, created_at, transaction_id);
+DROP INDEX idx_trans_from ON transactions;
+
+CREATE INDEX idx_trans_to_created ON transactions (to_user, created_at, transaction_id);
+DROP INDEX idx_trans_to ON transactions;
@@ -120,8 +120,9 @@ CREATE TABLE expenses (
         FOREIGN KEY (paid_by) REFERENCES users(phone_number)
         ON DELETE RESTRICT ON UPDATE CASCADE,
     
-    -- INDEX for group-wise expense lookups
-    INDEX idx_expenses_group (group_id),
+    -- INDEX for group-wise expense lookups; (created_at, expense_id) also
+    -- serves the newest-first ORDER BY and keyset pagination seeks
+    INDEX idx_expenses_group_created (group_id, created_at, expense_id),
     INDEX idx_expenses_paid_by (paid_by)
 ) ENGINE=InnoDB;
 
@@ -195,9 +196,9 @@ CREATE TABLE transactions (
         FOREIGN KEY (expense_id) REFERENCES expenses(expense_id)
         ON DELETE SET NULL ON UPDATE CASCADE,
     
-    -- INDEXES for transaction lookups
-    INDEX idx_trans_from (from_user),
-    INDEX idx_trans_to (to_user)
+    -- INDEXES for transaction lookups, newest first with keyset pagination
+    INDEX idx_trans_from_created (from_user, created_at, transaction_id),
+    INDEX idx_trans_to_created (to_user, created_at, transaction_id)
 ) ENGINE=InnoDB;
 
 -- ============================================================
@@ -206,6 +207,10 @@ CREATE TABLE transactions (
 -- Tracks net balance between users within a group
 -- Used for "who owes whom" summary
 -- Updated automatically via triggers when transactions occur
+-- version: bumped by every write; SettlementDAO.update() only succeeds
+-- if it still matches the version read (optimistic locking)
+-- Existing databases:
+--   ALTER TABLE settlements ADD COLUMN version INT NOT NULL DEFAULT 0;
 -- ============================================================
 CREATE TABLE settlements (
     id INT PRIMARY KEY AUTO_INCREMENT,
@@ -215,6 +220,7 @@ CREATE TABLE settlements (
     net_balance DECIMAL(10, 2) DEFAULT 0.00,
     status ENUM('PENDING', 'PARTIAL', 'SETTLED') DEFAULT 'PENDING',
     last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version INT NOT NULL DEFAULT 0,
     
     -- Unique constraint for each user pair per group
     UNIQUE KEY uk_settlement (group_id, from_user, to_user),
@@ -48,7 +48,8 @@ BEGIN
             WHEN net_balance - NEW.amount <= 0 THEN 'SETTLED'
             WHEN net_balance - NEW.amount < net_balance THEN 'PARTIAL'
             ELSE status
-        END
+        END,
+        version = version + 1
     WHERE group_id = v_group_id
       AND from_user = NEW.from_user
       AND to_user = NEW.to_user;
@@ -93,7 +94,8 @@ BEGIN
         VALUES (v_group_id, NEW.user_id, v_paid_by, NEW.share_amount, 'PENDING')
         ON DUPLICATE KEY UPDATE 
             net_balance = net_balance + NEW.share_amount,
-            status = 'PENDING';
+            status = 'PENDING',
+            version = version + 1;
     END IF;
 END//
 
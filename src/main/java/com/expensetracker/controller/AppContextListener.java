@@ -0,0 +1,40 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.service.CycleCancellationJob;
+import com.expensetracker.service.GroupLedger;
+import com.expensetracker.service.GroupWriteQueue;
+import com.expensetracker.service.SettlementCompactor;
+import com.expensetracker.util.DBUtil;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Application lifecycle hooks
+ *
+ * - Releases pooled database connections when the web app is stopped or
+ * redeployed, so MySQL does not keep orphaned sessions around
+ * - Starts the one-time settlement pair compactor (settlement.compact=true)
+ * and the periodic cycle cancellation job (if an interval is configured)
+ * - Finishes queued group writes, then saves the balance ledger snapshot
+ * (it needs the pool for checksums) before closing the pool
+ */
+@WebListener
+public class AppContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // The pool is created on first use; the compactor (compaction mode
+        // only) merges old bidirectional settlement rows in the background
+        SettlementCompactor.startInBackground();
+        CycleCancellationJob.startInBackground();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        CycleCancellationJob.stop();
+        GroupWriteQueue.shutdown();
+        GroupLedger.getInstance().saveSnapshot();
+        DBUtil.shutdown();
+    }
+}
@@ -0,0 +1,78 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.service.DataVersions;
+import com.expensetracker.util.DatabaseConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * ETags for GET responses, built from DataVersions.
+ *
+ * The tag is the process epoch plus the versions the response depends on,
+ * read before anything is queried. If the request's If-None-Match has the
+ * current tag, the answer is 304 with no body, before any service call.
+ * Responses also get Cache-Control: no-cache, so browsers keep them but ask
+ * again every time. Both headers describe the successful answer: error
+ * responses written through JsonOutput.error() drop them, so a cached 404
+ * never earns a 304 later.
+ *
+ * SETTINGS (db.properties or environment):
+ * - http.etags (default true; turn off when several app instances share one
+ * database, since each only sees its own writes)
+ */
+final class ConditionalGet {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(DatabaseConfig.getSetting(
+            "http.etags", "EXPENSE_TRACKER_HTTP_ETAGS", "true"));
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Tag the response with the given versions and answer 304 if the client
+     * already has that version.
+     *
+     * @return true if the 304 was sent and the caller must stop
+     */
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, long... versions) {
+        if (!ENABLED) {
+            return false;
+        }
+
+        StringBuilder etag = new StringBuilder("\"").append(DataVersions.getEpoch());
+        for (long version : versions) {
+            etag.append('-').append(version);
+        }
+        etag.append('"');
+        String tag = etag.toString();
+
+        response.setHeader("ETag", tag);
+        response.setHeader("Cache-Control", "no-cache");
+        if (matches(request.getHeader("If-None-Match"), tag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether an If-None-Match header (one or more tags) has tag. "*" is not
+     * honoured: it means "any current representation", and whether one
+     * exists is only known after the lookup this check is meant to skip.
+     */
+    private static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2); // weak comparison
+            }
+            if (candidate.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
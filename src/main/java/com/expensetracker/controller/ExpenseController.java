@@ -1,14 +1,17 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.*;
+import com.expensetracker.service.DataVersions;
+import com.expensetracker.service.DataVersions.Kind;
 import com.expensetracker.service.ExpenseService;
 import com.expensetracker.service.GroupService;
+import com.expensetracker.service.GroupWriteQueue;
+import com.expensetracker.util.PageCursor;
 import com.google.gson.Gson;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -40,8 +43,13 @@ public class ExpenseController extends HttpServlet {
     /**
      * GET requests:
      * - /api/expense?groupId={id} - Get expenses for a group
+     * - /api/expense?groupId={id}&limit={n}&cursor={token} - One page of a
+     * group's expenses: {"items": [...], "nextCursor": "..."}; pass
+     * nextCursor back as cursor for the next page (absent on the last page)
      * - /api/expense/{id} - Get expense by ID
      * - /api/expense/{id}/participants - Get expense participants
+     * 
+     * Responses carry an ETag; a matching If-None-Match gets 304.
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -49,7 +57,7 @@ public class ExpenseController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
 
@@ -59,46 +67,124 @@ public class ExpenseController extends HttpServlet {
                 String groupIdParam = request.getParameter("groupId");
                 if (groupIdParam != null) {
                     int groupId = Integer.parseInt(groupIdParam);
-                    List<Expense> expenses = expenseService.getExpensesByGroup(groupId);
-
-                    // Enrich with payer names
-                    List<Map<String, Object>> enriched = new ArrayList<>();
-                    for (Expense e : expenses) {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("expense", e);
-                        User payer = groupService.getUser(e.getPaidBy());
-                        item.put("paidByName", payer != null ? payer.getName() : "Unknown");
-                        item.put("participants", expenseService.getParticipants(e.getExpenseId()));
-                        enriched.add(item);
+                    // Payer names come from the members, else the users table
+                    if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.EXPENSES, groupId),
+                            DataVersions.version(Kind.GROUPS, groupId), DataVersions.version(Kind.USERS))) {
+                        return;
                     }
-                    out.print(gson.toJson(enriched));
+
+                    String limitParam = request.getParameter("limit");
+                    String cursorParam = request.getParameter("cursor");
+                    if (limitParam != null || cursorParam != null) {
+                        int limit = limitParam != null ? Integer.parseInt(limitParam) : 0;
+                        Page<Expense> page;
+                        try {
+                            page = expenseService.getExpensesByGroupPage(groupId, cursorParam, limit);
+                        } catch (IllegalArgumentException e) {
+                            out.error(400, e.getMessage());
+                            return;
+                        }
+
+                        // One batched name lookup and one participant query
+                        // for the whole page
+                        Set<String> payerIds = new HashSet<>();
+                        for (Expense e : page.getItems()) {
+                            payerIds.add(e.getPaidBy());
+                        }
+                        Map<String, User> users = new HashMap<>(groupService.getUsers(payerIds));
+
+                        List<Map<String, Object>> enriched = enrich(page.getItems(), users);
+                        Map<String, Object> result = new HashMap<>();
+                        result.put("items", enriched);
+                        result.put("nextCursor", page.getNextCursor());
+                        out.write(result);
+                        return;
+                    }
+
+                    // Read the whole list one keyset page at a time and write
+                    // each page before reading the next: the heap holds one
+                    // page, and no connection stays borrowed while a slow
+                    // client reads the response (a failure part way aborts
+                    // the response, see JsonOutput)
+                    // Payers are almost always current members: load their
+                    // names once up front instead of one query per expense
+                    Map<String, User> users = new HashMap<>();
+                    for (User member : groupService.getGroupMembers(groupId)) {
+                        if (member != null) {
+                            users.put(member.getPhoneNumber(), member);
+                        }
+                    }
+
+                    out.beginArray();
+                    String cursor = null;
+                    do {
+                        Page<Expense> page = expenseService.getExpensesByGroupPage(
+                                groupId, cursor, PageCursor.MAX_LIMIT);
+                        for (Map<String, Object> item : enrich(page.getItems(), users)) {
+                            out.write(item);
+                        }
+                        cursor = page.getNextCursor();
+                    } while (cursor != null);
+                    out.endArray();
                 } else {
-                    response.setStatus(400);
-                    out.print("{\"error\": \"groupId parameter required\"}");
+                    out.error(400, "groupId parameter required");
                 }
             } else if (pathInfo.matches("/\\d+")) {
                 // Get expense by ID
                 int expenseId = Integer.parseInt(pathInfo.substring(1));
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.EXPENSES))) {
+                    return;
+                }
                 Expense expense = expenseService.getExpense(expenseId);
                 if (expense != null) {
-                    out.print(gson.toJson(expense));
+                    out.write(expense);
                 } else {
-                    response.setStatus(404);
-                    out.print("{\"error\": \"Expense not found\"}");
+                    out.error(404, "Expense not found");
                 }
             } else if (pathInfo.matches("/\\d+/participants")) {
                 // Get expense participants
                 int expenseId = Integer.parseInt(pathInfo.split("/")[1]);
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.EXPENSES))) {
+                    return;
+                }
                 List<ExpenseParticipant> participants = expenseService.getParticipants(expenseId);
-                out.print(gson.toJson(participants));
+                out.write(participants);
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Enrich expenses with the payer name and participants, fetching the
+     * participants of all of them in one query.
+     * Payers missing from users (e.g. someone who left the group) are looked
+     * up once and remembered for the rest of the request.
+     */
+    private List<Map<String, Object>> enrich(List<Expense> expenses, Map<String, User> users) {
+        List<Integer> expenseIds = new ArrayList<>(expenses.size());
+        for (Expense e : expenses) {
+            expenseIds.add(e.getExpenseId());
+        }
+        Map<Integer, List<ExpenseParticipant>> participants = expenseService.getParticipants(expenseIds);
+
+        List<Map<String, Object>> enriched = new ArrayList<>(expenses.size());
+        for (Expense e : expenses) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("expense", e);
+            if (!users.containsKey(e.getPaidBy())) {
+                users.put(e.getPaidBy(), groupService.getUser(e.getPaidBy()));
+            }
+            User payer = users.get(e.getPaidBy());
+            item.put("paidByName", payer != null ? payer.getName() : "Unknown");
+            item.put("participants", participants.get(e.getExpenseId()));
+            enriched.add(item);
         }
+        return enriched;
     }
 
     /**
@@ -111,7 +197,7 @@ public class ExpenseController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         try {
             int groupId = Integer.parseInt(request.getParameter("groupId"));
@@ -134,14 +220,14 @@ public class ExpenseController extends HttpServlet {
                     shares.put(userId, share);
                 }
 
-                expense = expenseService.addExpenseCustomSplit(groupId, paidBy, amount,
-                        description, shares);
+                expense = GroupWriteQueue.await(expenseService.addExpenseCustomSplitAsync(
+                        groupId, paidBy, amount, description, shares));
             } else {
                 // Equal split
                 List<String> participants = Arrays.asList(participantIds);
 
-                expense = expenseService.addExpenseEqualSplit(groupId, paidBy, amount,
-                        description, participants);
+                expense = GroupWriteQueue.await(expenseService.addExpenseEqualSplitAsync(
+                        groupId, paidBy, amount, description, participants));
             }
 
             response.setStatus(201);
@@ -149,11 +235,12 @@ public class ExpenseController extends HttpServlet {
             result.put("success", true);
             result.put("expense", expense);
             result.put("message", "Expense added successfully");
-            out.print(gson.toJson(result));
+            out.write(result);
 
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 }
@@ -1,16 +1,18 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.*;
+import com.expensetracker.service.DataVersions;
+import com.expensetracker.service.DataVersions.Kind;
 import com.expensetracker.service.GroupService;
 import com.google.gson.Gson;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * GroupController Servlet
@@ -41,6 +43,8 @@ public class GroupController extends HttpServlet {
      * - /api/group - Get all groups
      * - /api/group/{id} - Get group by ID
      * - /api/group/{id}/members - Get group members
+     * 
+     * Responses carry an ETag; a matching If-None-Match gets 304.
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -48,41 +52,55 @@ public class GroupController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
                 // Get all groups
-                List<Group> groups = groupService.getAllGroups();
-                out.print(gson.toJson(groups));
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.GROUPS))) {
+                    return;
+                }
+                try (Stream<Group> groups = groupService.streamAllGroups()) {
+                    out.writeArray(groups);
+                }
             } else if (pathInfo.equals("/users")) {
                 // Get all users
-                List<User> users = groupService.getAllUsers();
-                out.print(gson.toJson(users));
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.USERS))) {
+                    return;
+                }
+                try (Stream<User> users = groupService.streamAllUsers()) {
+                    out.writeArray(users);
+                }
             } else if (pathInfo.matches("/\\d+")) {
                 // Get group by ID
                 int groupId = Integer.parseInt(pathInfo.substring(1));
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.GROUPS, groupId))) {
+                    return;
+                }
                 Group group = groupService.getGroup(groupId);
                 if (group != null) {
-                    out.print(gson.toJson(group));
+                    out.write(group);
                 } else {
-                    response.setStatus(404);
-                    out.print("{\"error\": \"Group not found\"}");
+                    out.error(404, "Group not found");
                 }
             } else if (pathInfo.matches("/\\d+/members")) {
                 // Get group members
                 int groupId = Integer.parseInt(pathInfo.split("/")[1]);
+                if (ConditionalGet.notModified(request, response,
+                        DataVersions.version(Kind.GROUPS, groupId), DataVersions.version(Kind.USERS))) {
+                    return;
+                }
                 List<User> members = groupService.getGroupMembers(groupId);
-                out.print(gson.toJson(members));
+                out.write(members);
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 
@@ -97,7 +115,7 @@ public class GroupController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
 
@@ -112,7 +130,7 @@ public class GroupController extends HttpServlet {
 
                 Group group = groupService.createGroup(name, description, creatorName, creatorPhone, creatorEmail);
                 response.setStatus(201);
-                out.print(gson.toJson(group));
+                out.write(group);
             } else if (pathInfo.matches("/\\d+/members")) {
                 // Add member to group with new user details
                 int groupId = Integer.parseInt(pathInfo.split("/")[1]);
@@ -124,14 +142,14 @@ public class GroupController extends HttpServlet {
                 Map<String, Object> result = new HashMap<>();
                 result.put("success", success);
                 result.put("message", success ? "Member added successfully" : "Member already exists in this group");
-                out.print(gson.toJson(result));
+                out.write(result);
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 
@@ -145,7 +163,7 @@ public class GroupController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
 
@@ -157,16 +175,15 @@ public class GroupController extends HttpServlet {
                 if (deleted) {
                     out.print("{\"success\": true}");
                 } else {
-                    response.setStatus(404);
-                    out.print("{\"error\": \"Group not found\"}");
+                    out.error(404, "Group not found");
                 }
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 }
@@ -0,0 +1,265 @@
+package com.expensetracker.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * JSON response body written straight to the servlet OutputStream.
+ *
+ * gson.toJson(value) builds the whole document as a String before it is
+ * printed, so a large response is held twice (objects plus text). Here Gson
+ * serializes through a JsonWriter while it walks the value, and the
+ * characters are encoded into a UTF-8 buffer that goes out whenever it
+ * fills up. Rows from a DAO stream (writeArray()) are serialized one at a
+ * time as they are read, so only the current row is in memory.
+ *
+ * The 8 KB buffer is kept per thread and reused by the next request on that
+ * thread. Use one JsonOutput per request and close() it (finally block) to
+ * send what is still buffered. print() writes raw JSON text.
+ *
+ * Error bodies go through error(), which resets the response first so that
+ * headers meant for a successful answer (such as the ETag) are not sent with
+ * the error. Once a body has started, the status line may already have gone
+ * out, so an error can no longer be appended to it: error() then throws the
+ * partial body away if the response is not yet committed, or else aborts the
+ * response so the client sees a broken transfer instead of truncated JSON
+ * with a 200.
+ */
+final class JsonOutput implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Idle buffer of this thread; taken while a JsonOutput uses it
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+    private final HttpServletResponse response;
+    private final Gson gson;
+    private final Utf8Writer writer;
+    private JsonWriter json;
+    private boolean started; // whether any of the body has been written
+
+    JsonOutput(HttpServletResponse response, Gson gson) throws IOException {
+        this.response = response;
+        this.gson = gson;
+        this.writer = new Utf8Writer(response.getOutputStream());
+        this.json = gson.newJsonWriter(writer);
+    }
+
+    /**
+     * Serialize value as the response body (or as the next array element).
+     */
+    void write(Object value) throws IOException {
+        started = true;
+        if (value == null) {
+            gson.toJson(JsonNull.INSTANCE, json);
+        } else {
+            gson.toJson(value, value.getClass(), json);
+        }
+    }
+
+    /**
+     * Serialize rows as a JSON array, each one as soon as it is read. The
+     * caller closes the stream.
+     */
+    <T> void writeArray(Stream<T> rows) throws IOException {
+        started = true;
+        json.beginArray();
+        Iterator<T> it = rows.iterator();
+        while (it.hasNext()) {
+            write(it.next());
+        }
+        json.endArray();
+    }
+
+    /**
+     * Start an array body written piece by piece: each write() adds one
+     * element until endArray().
+     */
+    void beginArray() throws IOException {
+        started = true;
+        json.beginArray();
+    }
+
+    void endArray() throws IOException {
+        json.endArray();
+    }
+
+    /**
+     * Raw JSON text
+     */
+    void print(String text) throws IOException {
+        started = true;
+        writer.write(text);
+    }
+
+    /**
+     * Answer with status and {"error": message} as the body.
+     *
+     * @throws IOException if part of the body had already been sent; the
+     * response is aborted and must not be written to any more
+     */
+    void error(int status, String message) throws IOException {
+        if (started) {
+            System.err.println("Response failed after its body had started (" + status + "): " + message);
+            writer.discard();
+            if (response.isCommitted()) {
+                writer.close();
+                throw new IOException("Response aborted: " + message);
+            }
+            json = gson.newJsonWriter(writer);
+            started = false;
+        }
+        // Nothing has reached the client yet: start over, dropping any
+        // partial body and the headers meant for a successful answer (the
+        // ETag and Cache-Control set by ConditionalGet)
+        response.reset();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        JsonObject body = new JsonObject();
+        body.addProperty("error", String.valueOf(message));
+        response.setStatus(status);
+        gson.toJson(body, json);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * UTF-8 encoder into a byte buffer borrowed from BUFFERS. Unpaired
+     * surrogates become '?', as with the JDK's encoder.
+     */
+    private static final class Utf8Writer extends Writer {
+        private final OutputStream out;
+        private byte[] buffer;
+        private int count;
+        private char highSurrogate; // first half of a pair, or 0
+
+        Utf8Writer(OutputStream out) {
+            this.out = out;
+            byte[] idle = BUFFERS.get();
+            BUFFERS.remove();
+            this.buffer = idle != null ? idle : new byte[BUFFER_SIZE];
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            ensureOpen();
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            ensureOpen();
+            for (int i = offset, end = offset + length; i < end; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            ensureOpen();
+            for (int i = offset, end = offset + length; i < end; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        private void encode(char c) throws IOException {
+            if (count + 4 > buffer.length) {
+                drain();
+            }
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                buffer[count++] = '?';
+                if (count + 4 > buffer.length) {
+                    drain();
+                }
+            }
+
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        /**
+         * Drop what is buffered and not yet sent
+         */
+        void discard() {
+            count = 0;
+            highSurrogate = 0;
+        }
+
+        private void drain() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (buffer == null) {
+                throw new IOException("Response already closed");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            drain();
+            out.flush();
+        }
+
+        /**
+         * Send what is buffered and give the buffer back. The servlet stream
+         * is left to the container, so small bodies still get a
+         * Content-Length.
+         */
+        @Override
+        public void close() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            try {
+                if (highSurrogate != 0) {
+                    highSurrogate = 0;
+                    buffer[count++] = '?';
+                }
+                drain();
+            } finally {
+                BUFFERS.set(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.*;
+import com.expensetracker.service.NettingService;
+import com.expensetracker.service.NettingService.PairNet;
+import com.google.gson.Gson;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * NettingController Servlet
+ *
+ * CONTROLLER LAYER:
+ * - Handles HTTP requests for cross-group netting between user pairs
+ * - Routes: /api/netting, /api/netting/pay
+ *
+ * ACID PROPERTIES:
+ * - A net payment updates settlement rows in several groups plus the
+ * transaction record; NettingService runs them in a single database
+ * transaction
+ */
+@WebServlet(urlPatterns = { "/api/netting", "/api/netting/*" })
+public class NettingController extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private NettingService nettingService;
+    private Gson gson;
+
+    @Override
+    public void init() throws ServletException {
+        nettingService = new NettingService();
+        gson = new Gson();
+    }
+
+    /**
+     * GET requests:
+     * - /api/netting - Net amount per user pair across all groups
+     * - /api/netting?userId={id} - Net amounts between one user and others
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        JsonOutput out = new JsonOutput(response, gson);
+
+        String pathInfo = request.getPathInfo();
+
+        try {
+            if (pathInfo == null || pathInfo.equals("/")) {
+                String userIdParam = request.getParameter("userId");
+                List<PairNet> nets = userIdParam != null
+                        ? nettingService.getNetsForUser(userIdParam)
+                        : nettingService.computeNets();
+                out.write(nets);
+            } else {
+                out.error(400, "Invalid request");
+            }
+        } catch (Exception e) {
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * POST requests:
+     * - /api/netting/pay - Record one payment against the net amount
+     * fromUser owes toUser across groups (fromUser, toUser, amount, note)
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        JsonOutput out = new JsonOutput(response, gson);
+
+        String pathInfo = request.getPathInfo();
+
+        try {
+            if (pathInfo == null || !pathInfo.equals("/pay")) {
+                out.error(400, "Invalid request");
+                return;
+            }
+
+            String fromUser = request.getParameter("fromUser");
+            String toUser = request.getParameter("toUser");
+            if (fromUser == null || toUser == null || request.getParameter("amount") == null) {
+                out.error(400, "fromUser, toUser and amount parameters required");
+                return;
+            }
+            BigDecimal amount = new BigDecimal(request.getParameter("amount"));
+            String note = request.getParameter("note");
+
+            Transaction transaction = nettingService.recordNetPayment(fromUser, toUser, amount, note);
+
+            response.setStatus(201);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("transaction", transaction);
+            result.put("message", "Net payment recorded successfully");
+            out.write(result);
+
+        } catch (IllegalArgumentException e) {
+            out.error(400, e.getMessage());
+        } catch (Exception e) {
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.*;
+import com.expensetracker.service.DataVersions;
+import com.expensetracker.service.DataVersions.Kind;
 import com.expensetracker.service.PaymentService;
 import com.expensetracker.service.GroupService;
+import com.expensetracker.service.GroupWriteQueue;
+import com.expensetracker.util.PageCursor;
 import com.google.gson.Gson;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -21,7 +24,8 @@ import java.util.*;
  * 
  * ACID PROPERTIES:
  * - Payment recording involves multiple updates (transaction + settlement)
- * - In DB implementation, these would be in a single transaction
+ * - PaymentService runs them in a single database transaction, queued
+ * behind other writes to the same group (GroupWriteQueue)
  */
 @WebServlet(urlPatterns = { "/api/payment", "/api/payment/*" })
 public class PaymentController extends HttpServlet {
@@ -41,7 +45,12 @@ public class PaymentController extends HttpServlet {
      * GET requests:
      * - /api/payment?userId={id} - Get transactions for a user
      * - /api/payment?groupId={id} - Get transactions for a group
+     * - add &limit={n}&cursor={token} to either for one page:
+     * {"items": [...], "nextCursor": "..."}; pass nextCursor back as cursor
+     * for the next page (absent on the last page)
      * - /api/payment/{id} - Get transaction by ID
+     * 
+     * Responses carry an ETag; a matching If-None-Match gets 304.
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -49,7 +58,7 @@ public class PaymentController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
 
@@ -58,48 +67,114 @@ public class PaymentController extends HttpServlet {
                 String userIdParam = request.getParameter("userId");
                 String groupIdParam = request.getParameter("groupId");
 
-                List<Transaction> transactions;
-                if (groupIdParam != null) {
-                    int groupId = Integer.parseInt(groupIdParam);
-                    transactions = paymentService.getTransactionsByGroup(groupId);
-                } else if (userIdParam != null) {
-                    transactions = paymentService.getTransactionsByUser(userIdParam);
-                } else {
-                    response.setStatus(400);
-                    out.print("{\"error\": \"userId or groupId parameter required\"}");
+                String limitParam = request.getParameter("limit");
+                String cursorParam = request.getParameter("cursor");
+                boolean paged = limitParam != null || cursorParam != null;
+                if (groupIdParam != null || userIdParam != null) {
+                    long payments = groupIdParam != null
+                            ? DataVersions.version(Kind.PAYMENTS, Integer.parseInt(groupIdParam))
+                            : DataVersions.version(Kind.PAYMENTS);
+                    if (ConditionalGet.notModified(request, response, payments, DataVersions.version(Kind.USERS))) {
+                        return;
+                    }
+                }
+                if (groupIdParam == null && userIdParam == null) {
+                    out.error(400, "userId or groupId parameter required");
+                    return;
+                }
+
+                if (!paged) {
+                    // Read the whole list one keyset page at a time and write
+                    // each page before reading the next (as for the expense
+                    // list); names are remembered across pages
+                    Map<String, User> users = new HashMap<>();
+                    out.beginArray();
+                    String cursor = null;
+                    do {
+                        Page<Transaction> page = groupIdParam != null
+                                ? paymentService.getTransactionsByGroupPage(
+                                        Integer.parseInt(groupIdParam), cursor, PageCursor.MAX_LIMIT)
+                                : paymentService.getTransactionsByUserPage(userIdParam, cursor, PageCursor.MAX_LIMIT);
+                        for (Map<String, Object> item : enrich(page.getItems(), users)) {
+                            out.write(item);
+                        }
+                        cursor = page.getNextCursor();
+                    } while (cursor != null);
+                    out.endArray();
                     return;
                 }
 
-                // Enrich with user names
-                List<Map<String, Object>> enriched = new ArrayList<>();
-                for (Transaction t : transactions) {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("transaction", t);
-                    User fromUser = groupService.getUser(t.getFromUser());
-                    User toUser = groupService.getUser(t.getToUser());
-                    item.put("fromUserName", fromUser != null ? fromUser.getName() : "Unknown");
-                    item.put("toUserName", toUser != null ? toUser.getName() : "Unknown");
-                    enriched.add(item);
+                int limit = limitParam != null ? Integer.parseInt(limitParam) : 0;
+                Page<Transaction> page;
+                try {
+                    page = groupIdParam != null
+                            ? paymentService.getTransactionsByGroupPage(
+                                    Integer.parseInt(groupIdParam), cursorParam, limit)
+                            : paymentService.getTransactionsByUserPage(userIdParam, cursorParam, limit);
+                } catch (IllegalArgumentException e) {
+                    out.error(400, e.getMessage());
+                    return;
                 }
-                out.print(gson.toJson(enriched));
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("items", enrich(page.getItems(), new HashMap<>()));
+                result.put("nextCursor", page.getNextCursor());
+                out.write(result);
 
             } else if (pathInfo.matches("/\\d+")) {
                 int transactionId = Integer.parseInt(pathInfo.substring(1));
+                if (ConditionalGet.notModified(request, response, DataVersions.version(Kind.PAYMENTS))) {
+                    return;
+                }
                 Transaction transaction = paymentService.getTransaction(transactionId);
                 if (transaction != null) {
-                    out.print(gson.toJson(transaction));
+                    out.write(transaction);
                 } else {
-                    response.setStatus(404);
-                    out.print("{\"error\": \"Transaction not found\"}");
+                    out.error(404, "Transaction not found");
                 }
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Add the payer and payee names to transactions. Names missing from
+     * users are fetched in one batched lookup and remembered there for the
+     * rest of the request.
+     */
+    private List<Map<String, Object>> enrich(List<Transaction> transactions, Map<String, User> users) {
+        Set<String> missing = new HashSet<>();
+        for (Transaction t : transactions) {
+            if (!users.containsKey(t.getFromUser())) {
+                missing.add(t.getFromUser());
+            }
+            if (!users.containsKey(t.getToUser())) {
+                missing.add(t.getToUser());
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, User> found = groupService.getUsers(missing);
+            for (String userId : missing) {
+                users.put(userId, found.get(userId));
+            }
+        }
+
+        List<Map<String, Object>> enriched = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("transaction", t);
+            User fromUser = users.get(t.getFromUser());
+            User toUser = users.get(t.getToUser());
+            item.put("fromUserName", fromUser != null ? fromUser.getName() : "Unknown");
+            item.put("toUserName", toUser != null ? toUser.getName() : "Unknown");
+            enriched.add(item);
         }
+        return enriched;
     }
 
     /**
@@ -112,7 +187,7 @@ public class PaymentController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         try {
             String fromUser = request.getParameter("fromUser");
@@ -128,22 +203,22 @@ public class PaymentController extends HttpServlet {
             if (note == null)
                 note = "";
 
-            Transaction transaction = paymentService.recordPayment(
-                    fromUser, toUser, amount, expenseId, note);
+            Transaction transaction = GroupWriteQueue.await(paymentService.recordPaymentAsync(
+                    fromUser, toUser, amount, expenseId, note));
 
             response.setStatus(201);
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("transaction", transaction);
             result.put("message", "Payment recorded successfully");
-            out.print(gson.toJson(result));
+            out.write(result);
 
         } catch (IllegalArgumentException e) {
-            response.setStatus(400);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(400, e.getMessage());
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 }
@@ -1,6 +1,8 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.model.*;
+import com.expensetracker.service.DataVersions;
+import com.expensetracker.service.DataVersions.Kind;
 import com.expensetracker.service.SettlementService;
 import com.expensetracker.service.SettlementService.*;
 import com.google.gson.Gson;
@@ -8,7 +10,6 @@ import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.*;
 
 /**
@@ -16,7 +17,8 @@ import java.util.*;
  * 
  * CONTROLLER LAYER:
  * - Handles HTTP requests for settlement/balance operations
- * - Routes: /api/settlement, /api/settlement/summary
+ * - Routes: /api/settlement, /api/settlement/summary,
+ * /api/settlement/cancel-cycles
  */
 @WebServlet(urlPatterns = { "/api/settlement", "/api/settlement/*" })
 public class SettlementController extends HttpServlet {
@@ -38,6 +40,12 @@ public class SettlementController extends HttpServlet {
      * - /api/settlement/summary?groupId={id} - Get formatted summary
      * - /api/settlement/balances?groupId={id} - Get member balance summary
      * - /api/settlement/simplify?groupId={id} - Get simplified debt summary
+     * - /api/settlement/simplify?groupId={id}&mode=optimal - Fewest possible
+     * transactions (exact for small groups)
+     * - /api/settlement/cancel-cycles?groupId={id} - What cancelling debt
+     * cycles would change (nothing is written)
+     * 
+     * Responses carry an ETag; a matching If-None-Match gets 304.
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -45,57 +53,113 @@ public class SettlementController extends HttpServlet {
 
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
+        JsonOutput out = new JsonOutput(response, gson);
 
         String pathInfo = request.getPathInfo();
         String groupIdParam = request.getParameter("groupId");
 
         try {
             if (groupIdParam == null) {
-                response.setStatus(400);
-                out.print("{\"error\": \"groupId parameter required\"}");
+                out.error(400, "groupId parameter required");
                 return;
             }
 
             int groupId = Integer.parseInt(groupIdParam);
+            if (ConditionalGet.notModified(request, response,
+                    DataVersions.version(Kind.SETTLEMENTS, groupId), DataVersions.version(Kind.USERS))) {
+                return;
+            }
 
             if (pathInfo == null || pathInfo.equals("/")) {
                 // Get all settlements for group
                 List<Settlement> settlements = settlementService.getAllSettlements(groupId);
-                out.print(gson.toJson(settlements));
+                out.write(settlements);
 
             } else if (pathInfo.equals("/pending")) {
                 // Get pending settlements
                 List<Settlement> pending = settlementService.getPendingSettlements(groupId);
-                out.print(gson.toJson(pending));
+                out.write(pending);
 
             } else if (pathInfo.equals("/settled")) {
                 // Get settled settlements
                 List<Settlement> settled = settlementService.getSettledSettlements(groupId);
-                out.print(gson.toJson(settled));
+                out.write(settled);
 
             } else if (pathInfo.equals("/summary")) {
                 // Get formatted settlement summary
                 List<SettlementSummary> summary = settlementService.getSettlementSummary(groupId);
-                out.print(gson.toJson(summary));
+                out.write(summary);
 
             } else if (pathInfo.equals("/balances")) {
                 // Get member balance summary
                 List<UserBalance> balances = settlementService.getGroupBalanceSummary(groupId);
-                out.print(gson.toJson(balances));
+                out.write(balances);
 
             } else if (pathInfo.equals("/simplify")) {
                 // Get simplified debt summary
-                List<SettlementSummary> simplified = settlementService.simplifyDebts(groupId);
-                out.print(gson.toJson(simplified));
+                String mode = request.getParameter("mode");
+                List<SettlementSummary> simplified;
+                if (mode == null || mode.isEmpty() || mode.equals("greedy")) {
+                    simplified = settlementService.simplifyDebts(groupId);
+                } else if (mode.equals("optimal")) {
+                    simplified = settlementService.simplifyDebtsOptimal(groupId);
+                } else {
+                    out.error(400, "mode must be greedy or optimal");
+                    return;
+                }
+                out.write(simplified);
+
+            } else if (pathInfo.equals("/cancel-cycles")) {
+                // Preview cycle cancellation
+                CycleCancellation preview = settlementService.previewCycleCancellation(groupId);
+                out.write(preview);
 
             } else {
-                response.setStatus(400);
-                out.print("{\"error\": \"Invalid request\"}");
+                out.error(400, "Invalid request");
             }
         } catch (Exception e) {
-            response.setStatus(500);
-            out.print("{\"error\": \"" + e.getMessage() + "\"}");
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * POST requests:
+     * - /api/settlement/cancel-cycles?groupId={id} - Remove debt cycles
+     * (A owes B owes C owes A) from the group's pending settlements; net
+     * balances stay the same
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        JsonOutput out = new JsonOutput(response, gson);
+
+        String pathInfo = request.getPathInfo();
+        String groupIdParam = request.getParameter("groupId");
+
+        try {
+            if (pathInfo == null || !pathInfo.equals("/cancel-cycles")) {
+                out.error(400, "Invalid request");
+                return;
+            }
+            if (groupIdParam == null) {
+                out.error(400, "groupId parameter required");
+                return;
+            }
+
+            CycleCancellation result = settlementService.cancelCycles(Integer.parseInt(groupIdParam));
+            out.write(result);
+
+        } catch (IllegalArgumentException e) {
+            out.error(400, e.getMessage());
+        } catch (Exception e) {
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
         }
     }
 }
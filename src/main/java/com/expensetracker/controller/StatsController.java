@@ -0,0 +1,113 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dao.cache.DAOFactory;
+import com.expensetracker.dao.cache.EntryCache;
+import com.expensetracker.dao.cache.MembershipIndex;
+import com.expensetracker.service.GroupLedger;
+import com.expensetracker.service.GroupWriteQueue;
+import com.expensetracker.service.SettlementViewCache;
+import com.expensetracker.util.TransactionRetry;
+import com.google.gson.Gson;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * StatsController Servlet
+ *
+ * CONTROLLER LAYER:
+ * - Reports this process's write contention and cache counters for
+ * monitoring
+ * - Routes: /api/stats
+ */
+@WebServlet(urlPatterns = { "/api/stats" })
+public class StatsController extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private Gson gson;
+
+    @Override
+    public void init() throws ServletException {
+        gson = new Gson();
+    }
+
+    /**
+     * GET requests:
+     * - /api/stats - Transaction conflicts/retries, write queue, balance
+     * ledger, settlement view, DAO cache and membership index counters since
+     * startup
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        JsonOutput out = new JsonOutput(response, gson);
+
+        try {
+            Map<String, Object> retry = new LinkedHashMap<>();
+            retry.put("conflicts", TransactionRetry.getConflicts());
+            retry.put("retries", TransactionRetry.getRetries());
+            retry.put("exhausted", TransactionRetry.getExhausted());
+
+            GroupWriteQueue queue = GroupWriteQueue.getInstance();
+            Map<String, Object> writeQueue = new LinkedHashMap<>();
+            writeQueue.put("commands", queue.getCommands());
+            writeQueue.put("batches", queue.getBatches());
+            writeQueue.put("retried", queue.getRetried());
+
+            GroupLedger ledger = GroupLedger.getInstance();
+            Map<String, Object> ledgerStats = new LinkedHashMap<>();
+            ledgerStats.put("enabled", ledger.isEnabled());
+            ledgerStats.put("cachedGroups", ledger.getCachedGroups());
+            ledgerStats.put("hits", ledger.getHits());
+            ledgerStats.put("loads", ledger.getLoads());
+
+            SettlementViewCache viewCache = SettlementViewCache.getInstance();
+            Map<String, Object> viewStats = new LinkedHashMap<>();
+            viewStats.put("enabled", viewCache.isEnabled());
+            viewStats.put("cachedGroups", viewCache.getCachedGroups());
+            viewStats.put("hits", viewCache.getHits());
+            viewStats.put("misses", viewCache.getMisses());
+
+            Map<String, Object> caches = new LinkedHashMap<>();
+            for (EntryCache<?, ?> cache : DAOFactory.caches()) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("size", cache.getSize());
+                stats.put("hits", cache.getHits());
+                stats.put("negativeHits", cache.getNegativeHits());
+                stats.put("misses", cache.getMisses());
+                stats.put("hitRate", cache.getHitRate());
+                stats.put("evictions", cache.getEvictions());
+                stats.put("invalidations", cache.getInvalidations());
+                caches.put(cache.getName(), stats);
+            }
+
+            MembershipIndex index = DAOFactory.membershipIndex();
+            Map<String, Object> indexStats = new LinkedHashMap<>();
+            indexStats.put("groups", index.getGroups());
+            indexStats.put("users", index.getUsers());
+            indexStats.put("lookups", index.getLookups());
+            indexStats.put("fallbacks", index.getFallbacks());
+            indexStats.put("loads", index.getLoads());
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("transactionRetry", retry);
+            result.put("writeQueue", writeQueue);
+            result.put("ledger", ledgerStats);
+            result.put("settlementViews", viewStats);
+            result.put("daoCache", caches);
+            result.put("membershipIndex", indexStats);
+            out.write(result);
+
+        } catch (Exception e) {
+            out.error(500, e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+}
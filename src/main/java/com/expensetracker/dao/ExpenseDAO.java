@@ -1,7 +1,9 @@
 package com.expensetracker.dao;
 
 import com.expensetracker.model.Expense;
+import com.expensetracker.util.PageCursor;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * ExpenseDAO Interface
@@ -18,6 +20,9 @@ import java.util.List;
  * - findByGroup(): SELECT * FROM expenses WHERE group_id=? ORDER BY created_at
  * DESC
  * - findByUser(): SELECT * FROM expenses WHERE paid_by=?
+ * - findByGroupPage(): SELECT * FROM expenses WHERE group_id=? AND
+ * (created_at < ? OR (created_at = ? AND expense_id < ?))
+ * ORDER BY created_at DESC, expense_id DESC LIMIT ?
  */
 public interface ExpenseDAO {
 
@@ -34,6 +39,23 @@ public interface ExpenseDAO {
      */
     List<Expense> findByGroup(int groupId);
 
+    /**
+     * Stream the expenses of a group, newest first, without loading them all
+     * into memory. Close the stream (try-with-resources) to release the
+     * connection.
+     */
+    Stream<Expense> streamByGroup(int groupId);
+
+    /**
+     * One page of a group's expenses, newest first, using a keyset seek on
+     * (created_at, expense_id) instead of OFFSET
+     *
+     * @param after position of the last row of the previous page, or null for
+     *              the first page
+     * @param limit maximum rows to return
+     */
+    List<Expense> findByGroupPage(int groupId, PageCursor after, int limit);
+
     /**
      * Find all expenses paid by a user
      */
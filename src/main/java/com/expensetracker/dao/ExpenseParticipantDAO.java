@@ -1,7 +1,9 @@
 package com.expensetracker.dao;
 
 import com.expensetracker.model.ExpenseParticipant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ExpenseParticipantDAO Interface
@@ -12,15 +14,28 @@ import java.util.List;
  * SQL OPERATIONS:
  * - insert(): INSERT INTO expense_participants (expense_id, user_id,
  * share_amount) VALUES (?, ?, ?)
+ * - insertAll(): same INSERT sent as one JDBC batch (rewritten by MySQL
+ * Connector/J into a single multi-row INSERT)
  * - update(): UPDATE expense_participants SET share_amount=?, is_settled=?
  * WHERE id=?
  * - findByExpense(): SELECT * FROM expense_participants WHERE expense_id=?
+ * - findByExpenses(): SELECT * FROM expense_participants WHERE expense_id IN
+ * (?, ?, ...)
  * - findByUser(): SELECT * FROM expense_participants WHERE user_id=?
  */
 public interface ExpenseParticipantDAO {
 
     int insert(ExpenseParticipant participant);
 
+    /**
+     * Insert several participants in one batch round trip.
+     * Each participant's id is set from the generated keys.
+     * 
+     * @param participants Participants to insert
+     * @return Generated IDs, in the same order as the input
+     */
+    int[] insertAll(List<ExpenseParticipant> participants);
+
     boolean update(ExpenseParticipant participant);
 
     boolean delete(int id);
@@ -32,6 +47,16 @@ public interface ExpenseParticipantDAO {
      */
     List<ExpenseParticipant> findByExpense(int expenseId);
 
+    /**
+     * Find the participants of many expenses in one round trip (chunked IN
+     * list) instead of one findByExpense() per expense
+     * 
+     * @param expenseIds Expense IDs to look up
+     * @return Participants grouped by expense ID; every requested ID is
+     *         present, with an empty list if it has no participants
+     */
+    Map<Integer, List<ExpenseParticipant>> findByExpenses(Collection<Integer> expenseIds);
+
     /**
      * Find all expense participations for a user
      */
@@ -2,6 +2,7 @@ package com.expensetracker.dao;
 
 import com.expensetracker.model.Group;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * GroupDAO Interface
@@ -38,4 +39,10 @@ public interface GroupDAO {
     List<Group> findByUser(String userId);
 
     List<Group> findAll();
+
+    /**
+     * Stream all groups without loading them all into memory.
+     * Close the stream (try-with-resources) to release the connection.
+     */
+    Stream<Group> streamAll();
 }
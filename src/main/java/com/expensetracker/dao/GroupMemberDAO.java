@@ -2,6 +2,7 @@ package com.expensetracker.dao;
 
 import com.expensetracker.model.GroupMember;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * GroupMemberDAO Interface
@@ -14,6 +15,9 @@ import java.util.List;
  * - delete(): DELETE FROM group_members WHERE group_id=? AND user_id=?
  * - findByGroup(): SELECT * FROM group_members WHERE group_id=?
  * - findByUser(): SELECT * FROM group_members WHERE user_id=?
+ * - countByGroup(): SELECT COUNT(*) FROM group_members WHERE group_id=?
+ * - findCommonGroups(): self-join of group_members on group_id
+ * - streamAll(): SELECT * FROM group_members
  */
 public interface GroupMemberDAO {
 
@@ -35,4 +39,20 @@ public interface GroupMemberDAO {
      * Check if user is member of group
      */
     boolean isMember(int groupId, String userId);
+
+    /**
+     * Number of members of a group
+     */
+    int countByGroup(int groupId);
+
+    /**
+     * IDs of the groups both users belong to, ascending
+     */
+    List<Integer> findCommonGroups(String userA, String userB);
+
+    /**
+     * Stream every membership row (used to build MembershipIndex).
+     * Must be closed; see JdbcStream.
+     */
+    Stream<GroupMember> streamAll();
 }
@@ -1,7 +1,12 @@
 package com.expensetracker.dao;
 
 import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementChecksum;
+import com.expensetracker.model.SettlementDelta;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * SettlementDAO Interface
@@ -12,11 +17,28 @@ import java.util.List;
  * SQL OPERATIONS:
  * - insert(): INSERT INTO settlements (group_id, from_user, to_user,
  * net_balance, status) VALUES (?, ?, ?, ?, ?)
- * - update(): UPDATE settlements SET net_balance=?, status=? WHERE id=?
+ * - update(): UPDATE settlements SET net_balance=?, status=?,
+ * version=version+1 WHERE id=? AND version=?
+ * - applyDeltas(): INSERT INTO settlements (...) VALUES (...), (...)
+ * ON DUPLICATE KEY UPDATE net_balance = net_balance + VALUES(net_balance),
+ * version = version + 1
  * - findByGroup(): SELECT * FROM settlements WHERE group_id=?
  * - findPending(): SELECT * FROM settlements WHERE status IN ('PENDING',
  * 'PARTIAL')
+ * - findPendingBetween(): SELECT * FROM settlements WHERE (from_user=? AND
+ * to_user=?) OR (from_user=? AND to_user=?) ... FOR UPDATE
+ * - findPendingByGroupForUpdate(): SELECT * FROM settlements WHERE
+ * group_id=? AND status IN ('PENDING', 'PARTIAL') ORDER BY id FOR UPDATE
+ * - findPendingGroupIds(): SELECT DISTINCT group_id FROM settlements WHERE
+ * status IN ('PENDING', 'PARTIAL')
  * - findSettled(): SELECT * FROM settlements WHERE status='SETTLED'
+ * - findWithReverse(): settlements a JOIN settlements b ON the reversed pair
+ * of the same group
+ * - netBalancesByGroup(): SUM of unsettled net_balance per member, credited
+ * to to_user and debited from from_user, GROUP BY user
+ * - checksumsByGroup(): SELECT group_id, COUNT(*), SUM(net_balance),
+ * MAX(last_updated), SUM(version), SETTLED row count ... WHERE group_id IN
+ * (...) GROUP BY group_id
  * 
  * TRIGGER INTEGRATION:
  * - In DB implementation, settlements are auto-updated by triggers
@@ -26,8 +48,42 @@ public interface SettlementDAO {
 
     int insert(Settlement settlement);
 
+    /**
+     * Write a row's balance and status if nobody changed it since it was
+     * read (compare-and-set on version). On success the settlement's version
+     * is advanced to the new value.
+     * 
+     * @return true if written; false if the row's version no longer matches
+     *         (or is gone), or the statement failed
+     */
     boolean update(Settlement settlement);
 
+    /**
+     * Add signed amounts to many settlement rows of a group in one statement.
+     * Missing rows are created; existing rows (uk_settlement) are adjusted in
+     * place, so concurrent writers cannot lose each other's updates.
+     * 
+     * Status is recomputed in SQL: SETTLED once the balance reaches zero,
+     * PARTIAL after a payment, PENDING after a new share. An overpayment is
+     * not kept as a negative balance: the row is settled at zero and the
+     * excess is added to the reverse pair (the payee now owes the payer).
+     * 
+     * @param groupId Group the rows belong to
+     * @param deltas  Changes to apply (several deltas for one pair are summed)
+     * @return true if the statement succeeded
+     */
+    boolean applyDeltas(int groupId, List<SettlementDelta> deltas);
+
+    /**
+     * applyDeltas() for several groups at once: all rows go into the same
+     * multi-row upsert, so a change spanning groups is still one statement
+     * (per 500 rows), plus one more pass if a payment overshot.
+     * 
+     * @param deltasByGroup Changes to apply per group ID
+     * @return true if the statement succeeded
+     */
+    boolean applyDeltas(Map<Integer, List<SettlementDelta>> deltasByGroup);
+
     Settlement findById(int id);
 
     /**
@@ -45,16 +101,74 @@ public interface SettlementDAO {
      */
     List<Settlement> findPending();
 
+    /**
+     * Pending/partial settlements between two users in either direction,
+     * across all groups, ordered by group. Rows are locked (FOR UPDATE) when
+     * called inside a transaction.
+     */
+    List<Settlement> findPendingBetween(String userA, String userB);
+
     /**
      * Find all pending settlements for a group
      */
     List<Settlement> findPendingByGroup(int groupId);
 
+    /**
+     * findPendingByGroup(), with the rows locked (FOR UPDATE) when called
+     * inside a transaction
+     */
+    List<Settlement> findPendingByGroupForUpdate(int groupId);
+
+    /**
+     * IDs of the groups that have pending/partial settlements, ascending
+     */
+    List<Integer> findPendingGroupIds();
+
     /**
      * Find all settled settlements for a group
      */
     List<Settlement> findSettledByGroup(int groupId);
 
+    /**
+     * Net balance of every user with a settlement row in the group, computed
+     * in one GROUP BY query over the group's rows (uk_settlement prefix).
+     * Positive = user is owed money, negative = user owes money; SETTLED
+     * rows count as zero.
+     * 
+     * @param groupId Group to aggregate
+     * @return Map of user ID to net balance, ordered by user ID
+     */
+    Map<String, BigDecimal> netBalancesByGroup(int groupId);
+
+    /**
+     * Row count, balance total, latest last_updated, version total and
+     * SETTLED count of each group's rows, used to tell whether a cached copy
+     * of a group is still current
+     * 
+     * @param groupIds Groups to summarize
+     * @return Checksum per requested group (groups without rows get a zero
+     *         checksum); empty map if the query failed
+     */
+    Map<Integer, SettlementChecksum> checksumsByGroup(Collection<Integer> groupIds);
+
+    /**
+     * Rows of the given pairs in either direction (from/to of each delta, or
+     * to/from), locked (FOR UPDATE) when called inside a transaction
+     */
+    List<Settlement> findPairsForUpdate(int groupId, Collection<SettlementDelta> pairs);
+
+    /**
+     * Rows whose reverse row (to_user -> from_user in the same group) also
+     * exists; only the row with the smaller from_user of each such pair is
+     * returned, ordered by group
+     */
+    List<Settlement> findWithReverse(int limit);
+
+    /**
+     * Delete settlement rows by ID
+     */
+    boolean deleteByIds(Collection<Integer> ids);
+
     /**
      * Find all settlements where user owes money
      */
@@ -1,7 +1,9 @@
 package com.expensetracker.dao;
 
 import com.expensetracker.model.Transaction;
+import com.expensetracker.util.PageCursor;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * TransactionDAO Interface
@@ -15,6 +17,8 @@ import java.util.List;
  * - findById(): SELECT * FROM transactions WHERE transaction_id=?
  * - findByUser(): SELECT * FROM transactions WHERE from_user=? OR to_user=?
  * - findByExpense(): SELECT * FROM transactions WHERE expense_id=?
+ * - findByUserPage() / findByGroupPage(): same filters with a keyset seek on
+ * (created_at, transaction_id) and a LIMIT
  * 
  * ACID PROPERTIES:
  * - Insert should be wrapped in a database transaction along with settlement
@@ -31,6 +35,12 @@ public interface TransactionDAO {
      */
     List<Transaction> findByUser(String userId);
 
+    /**
+     * Stream all transactions involving a user without loading them all into
+     * memory. Close the stream (try-with-resources) to release the connection.
+     */
+    Stream<Transaction> streamByUser(String userId);
+
     /**
      * Find all payments from one user to another
      */
@@ -45,4 +55,28 @@ public interface TransactionDAO {
      * Find all transactions in a group
      */
     List<Transaction> findByGroup(int groupId);
+
+    /**
+     * Stream all transactions in a group (same order as findByGroup()).
+     * Close the stream (try-with-resources) to release the connection.
+     */
+    Stream<Transaction> streamByGroup(int groupId);
+
+    /**
+     * One page of a user's transactions, newest first
+     *
+     * @param after position of the last row of the previous page, or null for
+     *              the first page
+     * @param limit maximum rows to return
+     */
+    List<Transaction> findByUserPage(String userId, PageCursor after, int limit);
+
+    /**
+     * One page of a group's transactions, newest first
+     *
+     * @param after position of the last row of the previous page, or null for
+     *              the first page
+     * @param limit maximum rows to return
+     */
+    List<Transaction> findByGroupPage(int groupId, PageCursor after, int limit);
 }
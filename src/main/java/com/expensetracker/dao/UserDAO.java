@@ -1,7 +1,10 @@
 package com.expensetracker.dao;
 
 import com.expensetracker.model.User;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * UserDAO Interface
@@ -17,6 +20,7 @@ import java.util.List;
  * - delete(): DELETE FROM users WHERE user_id=?
  * - findById(): SELECT * FROM users WHERE user_id=?
  * - findByEmail(): SELECT * FROM users WHERE email=?
+ * - findByPhones(): SELECT * FROM users WHERE phone_number IN (?, ?, ...)
  * - findAll(): SELECT * FROM users
  */
 public interface UserDAO {
@@ -53,6 +57,15 @@ public interface UserDAO {
      */
     User findByPhone(String phoneNumber);
 
+    /**
+     * Find many users in one round trip (chunked IN list) instead of one
+     * findByPhone() per id
+     * 
+     * @param phoneNumbers User Phone Numbers to look up (duplicates/nulls ignored)
+     * @return Map of phone number to User; ids that do not exist are absent
+     */
+    Map<String, User> findByPhones(Collection<String> phoneNumbers);
+
     /**
      * Find a user by their email address
      * 
@@ -67,4 +80,12 @@ public interface UserDAO {
      * @return List of all users
      */
     List<User> findAll();
+
+    /**
+     * Stream all users without loading them all into memory.
+     * Close the stream (try-with-resources) to release the connection.
+     *
+     * @return Stream of all users
+     */
+    Stream<User> streamAll();
 }
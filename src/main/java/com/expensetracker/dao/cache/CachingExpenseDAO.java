@@ -0,0 +1,85 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.ExpenseDAO;
+import com.expensetracker.model.Expense;
+import com.expensetracker.util.PageCursor;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * ExpenseDAO decorator that serves findById() from DAOFactory.EXPENSES;
+ * insert/update/delete invalidate the expense. The list queries go to the
+ * database.
+ *
+ * Callers get copies, so changing a returned Expense does not change the
+ * cache.
+ */
+public class CachingExpenseDAO implements ExpenseDAO {
+
+    private final ExpenseDAO delegate;
+
+    public CachingExpenseDAO(ExpenseDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int insert(Expense expense) {
+        int expenseId = delegate.insert(expense);
+        DAOFactory.EXPENSES.invalidateOnWrite(expenseId);
+        return expenseId;
+    }
+
+    @Override
+    public boolean update(Expense expense) {
+        boolean updated = delegate.update(expense);
+        DAOFactory.EXPENSES.invalidateOnWrite(expense.getExpenseId());
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int expenseId) {
+        boolean deleted = delegate.delete(expenseId);
+        DAOFactory.EXPENSES.invalidateOnWrite(expenseId);
+        return deleted;
+    }
+
+    @Override
+    public Expense findById(int expenseId) {
+        return copy(DAOFactory.EXPENSES.get(expenseId, delegate::findById));
+    }
+
+    @Override
+    public List<Expense> findByGroup(int groupId) {
+        return delegate.findByGroup(groupId);
+    }
+
+    @Override
+    public Stream<Expense> streamByGroup(int groupId) {
+        return delegate.streamByGroup(groupId);
+    }
+
+    @Override
+    public List<Expense> findByGroupPage(int groupId, PageCursor after, int limit) {
+        return delegate.findByGroupPage(groupId, after, limit);
+    }
+
+    @Override
+    public List<Expense> findByUser(String userId) {
+        return delegate.findByUser(userId);
+    }
+
+    @Override
+    public List<Expense> findByGroupAndUser(int groupId, String userId) {
+        return delegate.findByGroupAndUser(groupId, userId);
+    }
+
+    private static Expense copy(Expense expense) {
+        if (expense == null) {
+            return null;
+        }
+        Expense copy = new Expense(expense.getExpenseId(), expense.getGroupId(), expense.getPaidBy(),
+                expense.getAmount(), expense.getDescription(), expense.getSplitType());
+        copy.setCreatedAt(expense.getCreatedAt());
+        return copy;
+    }
+}
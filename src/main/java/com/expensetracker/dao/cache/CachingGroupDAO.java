@@ -0,0 +1,81 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.GroupDAO;
+import com.expensetracker.model.Group;
+import com.expensetracker.util.TransactionTemplate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * GroupDAO decorator that serves findById() from DAOFactory.GROUPS.
+ * insert/update/delete invalidate the group; a delete also drops its member
+ * list, index entry and cached expenses (rows removed by ON DELETE
+ * CASCADE).
+ *
+ * Callers get copies, so changing a returned Group does not change the
+ * cache.
+ */
+public class CachingGroupDAO implements GroupDAO {
+
+    private final GroupDAO delegate;
+
+    public CachingGroupDAO(GroupDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int insert(Group group) {
+        int groupId = delegate.insert(group);
+        DAOFactory.GROUPS.invalidateOnWrite(groupId);
+        return groupId;
+    }
+
+    @Override
+    public boolean update(Group group) {
+        boolean updated = delegate.update(group);
+        DAOFactory.GROUPS.invalidateOnWrite(group.getGroupId());
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int groupId) {
+        boolean deleted = delegate.delete(groupId);
+        DAOFactory.GROUPS.invalidateOnWrite(groupId);
+        DAOFactory.MEMBERS.invalidateOnWrite(groupId);
+        DAOFactory.EXPENSES.invalidateIfOnWrite(
+                (expenseId, expense) -> expense != null && expense.getGroupId() == groupId);
+        if (deleted) {
+            TransactionTemplate.onCommit(() -> DAOFactory.MEMBERSHIP.groupRemoved(groupId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Group findById(int groupId) {
+        return copy(DAOFactory.GROUPS.get(groupId, delegate::findById));
+    }
+
+    @Override
+    public List<Group> findByUser(String userId) {
+        return delegate.findByUser(userId);
+    }
+
+    @Override
+    public List<Group> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Group> streamAll() {
+        return delegate.streamAll();
+    }
+
+    private static Group copy(Group group) {
+        if (group == null) {
+            return null;
+        }
+        Group copy = new Group(group.getGroupId(), group.getName(), group.getDescription(), group.getCreatedBy());
+        copy.setCreatedAt(group.getCreatedAt());
+        return copy;
+    }
+}
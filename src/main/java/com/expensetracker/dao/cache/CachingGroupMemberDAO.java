@@ -0,0 +1,86 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.GroupMemberDAO;
+import com.expensetracker.model.GroupMember;
+import com.expensetracker.util.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * GroupMemberDAO decorator that keeps each group's member list in
+ * DAOFactory.MEMBERS; findByGroup() is answered from it. isMember(),
+ * countByGroup() and findCommonGroups() are answered from
+ * DAOFactory.MEMBERSHIP. insert/delete invalidate the group's list and
+ * update the index once committed. findByUser() and streamAll() go to the
+ * database.
+ *
+ * Callers get copies, so changing a returned list or GroupMember does not
+ * change the cache.
+ */
+public class CachingGroupMemberDAO implements GroupMemberDAO {
+
+    private final GroupMemberDAO delegate;
+
+    public CachingGroupMemberDAO(GroupMemberDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int insert(GroupMember member) {
+        int id = delegate.insert(member);
+        DAOFactory.MEMBERS.invalidateOnWrite(member.getGroupId());
+        if (id > 0) {
+            int groupId = member.getGroupId();
+            TransactionTemplate.onCommit(() -> DAOFactory.MEMBERSHIP.memberChanged(groupId));
+        }
+        return id;
+    }
+
+    @Override
+    public boolean delete(int groupId, String userId) {
+        boolean deleted = delegate.delete(groupId, userId);
+        DAOFactory.MEMBERS.invalidateOnWrite(groupId);
+        if (deleted) {
+            TransactionTemplate.onCommit(() -> DAOFactory.MEMBERSHIP.memberChanged(groupId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<GroupMember> findByGroup(int groupId) {
+        List<GroupMember> members = DAOFactory.MEMBERS.get(groupId, delegate::findByGroup);
+        List<GroupMember> copy = new ArrayList<>(members.size());
+        for (GroupMember member : members) {
+            GroupMember m = new GroupMember(member.getId(), member.getGroupId(), member.getUserId());
+            m.setJoinedAt(member.getJoinedAt());
+            copy.add(m);
+        }
+        return copy;
+    }
+
+    @Override
+    public List<GroupMember> findByUser(String userId) {
+        return delegate.findByUser(userId);
+    }
+
+    @Override
+    public boolean isMember(int groupId, String userId) {
+        return DAOFactory.MEMBERSHIP.isMember(groupId, userId);
+    }
+
+    @Override
+    public int countByGroup(int groupId) {
+        return DAOFactory.MEMBERSHIP.countMembers(groupId);
+    }
+
+    @Override
+    public List<Integer> findCommonGroups(String userA, String userB) {
+        return DAOFactory.MEMBERSHIP.commonGroups(userA, userB);
+    }
+
+    @Override
+    public Stream<GroupMember> streamAll() {
+        return delegate.streamAll();
+    }
+}
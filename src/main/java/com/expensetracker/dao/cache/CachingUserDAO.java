@@ -0,0 +1,94 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.UserDAO;
+import com.expensetracker.model.User;
+import com.expensetracker.util.TransactionTemplate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * UserDAO decorator that serves findByPhone()/findByPhones() from
+ * DAOFactory.USERS (unknown phone numbers are cached as missing).
+ * insert/update/delete invalidate the user; a delete also drops the member
+ * lists of the user's groups and the user's memberships in the index (rows
+ * removed by ON DELETE CASCADE).
+ *
+ * Callers get copies, so changing a returned User does not change the
+ * cache.
+ */
+public class CachingUserDAO implements UserDAO {
+
+    private final UserDAO delegate;
+
+    public CachingUserDAO(UserDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String insert(User user) {
+        String id = delegate.insert(user);
+        DAOFactory.USERS.invalidateOnWrite(user.getPhoneNumber());
+        return id;
+    }
+
+    @Override
+    public boolean update(User user) {
+        boolean updated = delegate.update(user);
+        DAOFactory.USERS.invalidateOnWrite(user.getPhoneNumber());
+        return updated;
+    }
+
+    @Override
+    public boolean delete(String phoneNumber) {
+        boolean deleted = delegate.delete(phoneNumber);
+        DAOFactory.USERS.invalidateOnWrite(phoneNumber);
+        DAOFactory.MEMBERS.invalidateIfOnWrite((groupId, members) -> members != null
+                && members.stream().anyMatch(m -> phoneNumber.equals(m.getUserId())));
+        if (deleted) {
+            TransactionTemplate.onCommit(() -> DAOFactory.MEMBERSHIP.userRemoved(phoneNumber));
+        }
+        return deleted;
+    }
+
+    @Override
+    public User findByPhone(String phoneNumber) {
+        return copy(DAOFactory.USERS.get(phoneNumber, delegate::findByPhone));
+    }
+
+    @Override
+    public Map<String, User> findByPhones(Collection<String> phoneNumbers) {
+        Map<String, User> cached = DAOFactory.USERS.getAll(phoneNumbers, delegate::findByPhones);
+        Map<String, User> users = new HashMap<>(cached.size() * 2);
+        for (Map.Entry<String, User> entry : cached.entrySet()) {
+            users.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return users;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User(user.getPhoneNumber(), user.getName(), user.getEmail());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
+}
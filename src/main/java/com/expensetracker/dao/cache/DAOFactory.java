@@ -0,0 +1,99 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.ExpenseDAO;
+import com.expensetracker.dao.GroupDAO;
+import com.expensetracker.dao.GroupMemberDAO;
+import com.expensetracker.dao.UserDAO;
+import com.expensetracker.dao.impl.ExpenseDAOImpl;
+import com.expensetracker.dao.impl.GroupDAOImpl;
+import com.expensetracker.dao.impl.GroupMemberDAOImpl;
+import com.expensetracker.dao.impl.UserDAOImpl;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.Group;
+import com.expensetracker.model.GroupMember;
+import com.expensetracker.model.User;
+import com.expensetracker.util.DatabaseConfig;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the user, group, expense and membership DAOs for the services.
+ *
+ * With cache.enabled (default) each JDBC DAO is wrapped in a caching
+ * decorator (CachingUserDAO, ...) that implements the same interface. All
+ * decorators of one type share one EntryCache, so a write through any of
+ * them invalidates what the others serve.
+ *
+ * Group membership is also kept in a MembershipIndex (bitmaps of members
+ * per group and groups per user) for isMember(), countByGroup() and
+ * findCommonGroups().
+ *
+ * Only this process's writes are seen: entries expire after
+ * cache.ttlSeconds, which bounds how stale a value changed by another app
+ * instance (or by hand in SQL) can be.
+ *
+ * SETTINGS (db.properties or environment):
+ * - cache.enabled (default true)
+ * - cache.maxEntries (default 10000, per cache)
+ * - cache.ttlSeconds (default 300)
+ * - cache.negativeTtlSeconds (default 30, for "not found" entries)
+ */
+public final class DAOFactory {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(DatabaseConfig.getSetting(
+            "cache.enabled", "EXPENSE_TRACKER_CACHE_ENABLED", "true"));
+    private static final int MAX_ENTRIES = (int) Math.max(1, DatabaseConfig.getLongSetting(
+            "cache.maxEntries", "EXPENSE_TRACKER_CACHE_MAX_ENTRIES", 10000));
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(DatabaseConfig.getLongSetting(
+            "cache.ttlSeconds", "EXPENSE_TRACKER_CACHE_TTL_SECONDS", 300));
+    private static final long NEGATIVE_TTL_NANOS = TimeUnit.SECONDS.toNanos(DatabaseConfig.getLongSetting(
+            "cache.negativeTtlSeconds", "EXPENSE_TRACKER_CACHE_NEGATIVE_TTL_SECONDS", 30));
+
+    static final EntryCache<String, User> USERS = newCache("users");
+    static final EntryCache<Integer, Group> GROUPS = newCache("groups");
+    static final EntryCache<Integer, Expense> EXPENSES = newCache("expenses");
+    static final EntryCache<Integer, List<GroupMember>> MEMBERS = newCache("groupMembers");
+    static final MembershipIndex MEMBERSHIP = new MembershipIndex(new GroupMemberDAOImpl(), TTL_NANOS);
+
+    private DAOFactory() {
+    }
+
+    public static UserDAO userDAO() {
+        return ENABLED ? new CachingUserDAO(new UserDAOImpl()) : new UserDAOImpl();
+    }
+
+    public static GroupDAO groupDAO() {
+        return ENABLED ? new CachingGroupDAO(new GroupDAOImpl()) : new GroupDAOImpl();
+    }
+
+    public static ExpenseDAO expenseDAO() {
+        return ENABLED ? new CachingExpenseDAO(new ExpenseDAOImpl()) : new ExpenseDAOImpl();
+    }
+
+    public static GroupMemberDAO groupMemberDAO() {
+        return ENABLED ? new CachingGroupMemberDAO(new GroupMemberDAOImpl()) : new GroupMemberDAOImpl();
+    }
+
+    public static boolean isCaching() {
+        return ENABLED;
+    }
+
+    /**
+     * The shared caches, for statistics
+     */
+    public static List<EntryCache<?, ?>> caches() {
+        return Arrays.asList(USERS, GROUPS, EXPENSES, MEMBERS);
+    }
+
+    /**
+     * The shared membership index, for statistics
+     */
+    public static MembershipIndex membershipIndex() {
+        return MEMBERSHIP;
+    }
+
+    private static <K, V> EntryCache<K, V> newCache(String name) {
+        return new EntryCache<>(name, MAX_ENTRIES, TTL_NANOS, NEGATIVE_TTL_NANOS);
+    }
+}
@@ -0,0 +1,246 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.util.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache with per-entry expiry, shared by all decorators of one
+ * DAO type.
+ *
+ * - A load that returns null is cached too (negative entry, shorter TTL), so
+ * repeated lookups of a missing key do not hit the database
+ * - A load that overlaps an invalidation is returned but not cached
+ * (generation check), so a write can never be hidden by an older read
+ * - Writes invalidate at once and again when their transaction ends, so a
+ * value read between the write and its commit is not kept
+ */
+public final class EntryCache<K, V> {
+
+    private final String name;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    // Entries in LRU order; guarded by itself
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    private long generation; // guarded by entries
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    EntryCache(String name, int maxEntries, long ttlNanos, long negativeTtlNanos) {
+        this.name = name;
+        this.ttlNanos = ttlNanos;
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value for key, or loader's result (cached, null included).
+     */
+    V get(K key, Function<K, V> loader) {
+        long loadGeneration;
+        synchronized (entries) {
+            CacheEntry<V> entry = liveEntry(key);
+            if (entry != null) {
+                (entry.value != null ? hits : negativeHits).incrementAndGet();
+                return entry.value;
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        V value = loader.apply(key);
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(key, newEntry(value));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Values for many keys: cached ones from memory, the rest with one
+     * loader call. Keys the loader does not return are cached as missing.
+     *
+     * @return found values only
+     */
+    Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        List<K> toLoad = new ArrayList<>();
+        long loadGeneration;
+        synchronized (entries) {
+            for (K key : new LinkedHashSet<>(keys)) {
+                CacheEntry<V> entry = liveEntry(key);
+                if (entry == null) {
+                    toLoad.add(key);
+                } else if (entry.value != null) {
+                    hits.incrementAndGet();
+                    result.put(key, entry.value);
+                } else {
+                    negativeHits.incrementAndGet();
+                }
+            }
+            loadGeneration = generation;
+        }
+        if (toLoad.isEmpty()) {
+            return result;
+        }
+        misses.addAndGet(toLoad.size());
+
+        Map<K, V> loaded = loader.apply(toLoad);
+        synchronized (entries) {
+            boolean cache = generation == loadGeneration;
+            for (K key : toLoad) {
+                V value = loaded.get(key);
+                if (cache) {
+                    entries.put(key, newEntry(value));
+                }
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop key now and once the current transaction (if any) has ended.
+     */
+    void invalidateOnWrite(K key) {
+        invalidate(key);
+        TransactionTemplate.onCompletion(() -> invalidate(key));
+    }
+
+    /**
+     * Drop every entry matching test, now and once the current transaction
+     * has ended (for changes cascaded by the database).
+     */
+    void invalidateIfOnWrite(BiPredicate<K, V> test) {
+        invalidateIf(test);
+        TransactionTemplate.onCompletion(() -> invalidateIf(test));
+    }
+
+    void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            if (entries.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    void invalidateIf(BiPredicate<K, V> test) {
+        synchronized (entries) {
+            generation++;
+            for (Iterator<Map.Entry<K, CacheEntry<V>>> it = entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<K, CacheEntry<V>> e = it.next();
+                if (test.test(e.getKey(), e.getValue().value)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    private CacheEntry<V> liveEntry(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private CacheEntry<V> newEntry(V value) {
+        return new CacheEntry<>(value, System.nanoTime() + (value != null ? ttlNanos : negativeTtlNanos));
+    }
+
+    // ==================== STATS ====================
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Lookups answered with a cached value */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Lookups answered with a cached "not found" */
+    public long getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    /** Lookups that went to the database */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /** Share of lookups answered from memory (0 before the first lookup) */
+    public double getHitRate() {
+        long answered = hits.get() + negativeHits.get();
+        long total = answered + misses.get();
+        return total == 0 ? 0 : (double) answered / total;
+    }
+
+    @Override
+    public String toString() {
+        return "EntryCache{" + name + ", size=" + getSize() + ", hits=" + hits + ", negativeHits="
+                + negativeHits + ", misses=" + misses + ", evictions=" + evictions
+                + ", invalidations=" + invalidations + "}";
+    }
+
+    private static final class CacheEntry<V> {
+        final V value; // null = known to be missing
+        final long expiresAt;
+
+        CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
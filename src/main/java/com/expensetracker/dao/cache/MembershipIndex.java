@@ -0,0 +1,330 @@
+package com.expensetracker.dao.cache;
+
+import com.expensetracker.dao.GroupMemberDAO;
+import com.expensetracker.model.GroupMember;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * In-memory index of group_members, for membership checks without a query.
+ *
+ * Every user known to the index gets a dense int slot. The index keeps
+ * compressed (Roaring) bitmaps:
+ * - per group, a bitmap of member slots (isMember, countMembers)
+ * - per user slot, a bitmap of group IDs (commonGroups: AND of two users'
+ * bitmaps). Group IDs are sparse auto-increment values, which a Roaring
+ * bitmap stores in space proportional to the groups set rather than to
+ * the largest ID.
+ *
+ * The whole table is streamed in on a background thread, first when the
+ * index is used and again after cache.ttlSeconds; lookups keep using the
+ * old index while it reloads (the database until the first load is done),
+ * so no request waits for a load. In between it follows this process's
+ * writes once their transaction commits (CachingGroupMemberDAO, and the
+ * cascades of CachingGroupDAO/CachingUserDAO). A member change re-reads
+ * that group's rows rather than applying the change itself, because
+ * concurrent writers may run their commit hooks in a different order than
+ * they committed; a re-read or reload that overlaps a newer write is thrown
+ * away.
+ *
+ * Slots are not reused until the next reload, so removed users only leave
+ * cleared bits behind.
+ */
+public final class MembershipIndex {
+
+    private final GroupMemberDAO source;
+    private final long ttlNanos;
+
+    private State state; // null until loaded; guarded by this
+    private long loadedAt;
+    private long generation;
+    private final Map<Integer, Long> groupVersions = new HashMap<>();
+    private boolean loading;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    // One loader thread, stopped when idle so it needs no shutdown
+    private final ThreadPoolExecutor loader;
+
+    MembershipIndex(GroupMemberDAO source, long ttlNanos) {
+        this.source = source;
+        this.ttlNanos = ttlNanos;
+        this.loader = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "membership-index-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        this.loader.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isMember(int groupId, String userId) {
+        if (ready()) {
+            synchronized (this) {
+                if (state != null) {
+                    lookups.incrementAndGet();
+                    Integer slot = state.slots.get(userId);
+                    RoaringBitmap members = state.membersByGroup.get(groupId);
+                    return slot != null && members != null && members.contains(slot);
+                }
+            }
+        }
+        fallbacks.incrementAndGet();
+        return source.isMember(groupId, userId);
+    }
+
+    public int countMembers(int groupId) {
+        if (ready()) {
+            synchronized (this) {
+                if (state != null) {
+                    lookups.incrementAndGet();
+                    RoaringBitmap members = state.membersByGroup.get(groupId);
+                    return members == null ? 0 : members.getCardinality();
+                }
+            }
+        }
+        fallbacks.incrementAndGet();
+        return source.countByGroup(groupId);
+    }
+
+    /**
+     * IDs of the groups both users belong to, ascending
+     */
+    public List<Integer> commonGroups(String userA, String userB) {
+        if (ready()) {
+            synchronized (this) {
+                if (state != null) {
+                    lookups.incrementAndGet();
+                    Integer a = state.slots.get(userA);
+                    Integer b = state.slots.get(userB);
+                    if (a == null || b == null) {
+                        return Collections.emptyList();
+                    }
+                    RoaringBitmap common = RoaringBitmap.and(state.groupsByUser.get(a), state.groupsByUser.get(b));
+                    List<Integer> groupIds = new ArrayList<>(common.getCardinality());
+                    IntIterator it = common.getIntIterator();
+                    while (it.hasNext()) {
+                        groupIds.add(it.next());
+                    }
+                    return groupIds;
+                }
+            }
+        }
+        fallbacks.incrementAndGet();
+        return source.findCommonGroups(userA, userB);
+    }
+
+    // ==================== WRITES (after commit) ====================
+
+    /**
+     * A member of groupId was added or removed: re-read the group's rows.
+     */
+    void memberChanged(int groupId) {
+        long version;
+        synchronized (this) {
+            generation++;
+            if (state == null) {
+                return;
+            }
+            version = groupVersions.merge(groupId, 1L, Long::sum);
+        }
+
+        List<GroupMember> members = source.findByGroup(groupId);
+        synchronized (this) {
+            // A newer change of the group re-reads it itself
+            Long current = groupVersions.get(groupId);
+            if (state != null && current != null && current == version) {
+                groupVersions.remove(groupId);
+                state.removeGroup(groupId);
+                for (GroupMember member : members) {
+                    state.add(groupId, member.getUserId());
+                }
+            }
+        }
+    }
+
+    synchronized void groupRemoved(int groupId) {
+        generation++;
+        if (state != null) {
+            state.removeGroup(groupId);
+        }
+    }
+
+    synchronized void userRemoved(String userId) {
+        generation++;
+        if (state != null) {
+            state.removeUser(userId);
+        }
+    }
+
+    /**
+     * Drop the index; the next lookup reloads it.
+     */
+    public synchronized void clear() {
+        generation++;
+        groupVersions.clear();
+        state = null;
+    }
+
+    /**
+     * Start a background load if the index is missing or expired. Lookups
+     * never wait for it: they keep using the old index, or the database
+     * until the first load is done.
+     *
+     * @return whether an index is available
+     */
+    private synchronized boolean ready() {
+        if (!loading && (state == null || System.nanoTime() - loadedAt >= ttlNanos)) {
+            loading = true;
+            long loadGeneration = generation;
+            try {
+                loader.execute(() -> reload(loadGeneration));
+            } catch (RejectedExecutionException e) {
+                loading = false;
+            }
+        }
+        return state != null;
+    }
+
+    private void reload(long loadGeneration) {
+        State fresh = null;
+        try {
+            fresh = load();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                loading = false;
+                if (fresh != null && generation == loadGeneration) {
+                    state = fresh;
+                    loadedAt = System.nanoTime();
+                    loads.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private State load() {
+        State fresh = new State();
+        try (Stream<GroupMember> rows = source.streamAll()) {
+            rows.forEach(m -> fresh.add(m.getGroupId(), m.getUserId()));
+        }
+        fresh.optimize();
+        return fresh;
+    }
+
+    // ==================== STATS ====================
+
+    /** Lookups answered from the index */
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /** Lookups sent to the database because no index was loaded */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /** Full loads of group_members */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public synchronized int getGroups() {
+        return state == null ? 0 : state.membersByGroup.size();
+    }
+
+    public synchronized int getUsers() {
+        return state == null ? 0 : state.slots.size();
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipIndex{groups=" + getGroups() + ", users=" + getUsers() + ", lookups=" + lookups
+                + ", fallbacks=" + fallbacks + ", loads=" + loads + "}";
+    }
+
+    /**
+     * The bitmaps; only touched while holding the index's lock (or before
+     * being published by a load).
+     */
+    private static final class State {
+        final Map<String, Integer> slots = new HashMap<>();
+        final List<RoaringBitmap> groupsByUser = new ArrayList<>(); // by slot
+        final Map<Integer, RoaringBitmap> membersByGroup = new HashMap<>();
+
+        void add(int groupId, String userId) {
+            Integer slot = slots.get(userId);
+            if (slot == null) {
+                slot = groupsByUser.size();
+                slots.put(userId, slot);
+                groupsByUser.add(new RoaringBitmap());
+            }
+            membersByGroup.computeIfAbsent(groupId, g -> new RoaringBitmap()).add(slot);
+            groupsByUser.get(slot).add(groupId);
+        }
+
+        void remove(int groupId, String userId) {
+            Integer slot = slots.get(userId);
+            if (slot == null) {
+                return;
+            }
+            groupsByUser.get(slot).remove(groupId);
+            RoaringBitmap members = membersByGroup.get(groupId);
+            if (members != null) {
+                members.remove(slot);
+                if (members.isEmpty()) {
+                    membersByGroup.remove(groupId);
+                }
+            }
+        }
+
+        void removeGroup(int groupId) {
+            RoaringBitmap members = membersByGroup.remove(groupId);
+            if (members == null) {
+                return;
+            }
+            IntIterator it = members.getIntIterator();
+            while (it.hasNext()) {
+                groupsByUser.get(it.next()).remove(groupId);
+            }
+        }
+
+        void removeUser(String userId) {
+            Integer slot = slots.get(userId);
+            if (slot == null) {
+                return;
+            }
+            // Copy: remove() changes the user's bitmap while iterating
+            IntIterator it = groupsByUser.get(slot).clone().getIntIterator();
+            while (it.hasNext()) {
+                remove(it.next(), userId);
+            }
+        }
+
+        /**
+         * Compact the bitmaps after a load (run-length containers where they
+         * are smaller)
+         */
+        void optimize() {
+            for (RoaringBitmap groups : groupsByUser) {
+                groups.runOptimize();
+            }
+            for (RoaringBitmap members : membersByGroup.values()) {
+                members.runOptimize();
+            }
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.expensetracker.dao.impl;
 import com.expensetracker.dao.ExpenseDAO;
 import com.expensetracker.model.Expense;
 import com.expensetracker.util.DBUtil;
+import com.expensetracker.util.JdbcStream;
+import com.expensetracker.util.PageCursor;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JDBC Implementation of ExpenseDAO
@@ -111,6 +114,45 @@ public class ExpenseDAOImpl implements ExpenseDAO {
         return expenses;
     }
 
+    @Override
+    public Stream<Expense> streamByGroup(int groupId) {
+        String sql = "SELECT * FROM expenses WHERE group_id = ? ORDER BY created_at DESC";
+        return JdbcStream.query(sql, pstmt -> pstmt.setInt(1, groupId), this::mapRowToExpense);
+    }
+
+    @Override
+    public List<Expense> findByGroupPage(int groupId, PageCursor after, int limit) {
+        List<Expense> expenses = new ArrayList<>();
+        // Row-value comparison written out so MySQL can range-scan
+        // idx_expenses_group_created (group_id, created_at, expense_id)
+        String sql = after == null
+                ? "SELECT * FROM expenses WHERE group_id = ? "
+                        + "ORDER BY created_at DESC, expense_id DESC LIMIT ?"
+                : "SELECT * FROM expenses WHERE group_id = ? "
+                        + "AND (created_at < ? OR (created_at = ? AND expense_id < ?)) "
+                        + "ORDER BY created_at DESC, expense_id DESC LIMIT ?";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            pstmt.setInt(i++, groupId);
+            if (after != null) {
+                pstmt.setTimestamp(i++, after.getCreatedAt());
+                pstmt.setTimestamp(i++, after.getCreatedAt());
+                pstmt.setInt(i++, after.getId());
+            }
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    expenses.add(mapRowToExpense(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return expenses;
+    }
+
     @Override
     public List<Expense> findByUser(String userId) {
         List<Expense> expenses = new ArrayList<>();
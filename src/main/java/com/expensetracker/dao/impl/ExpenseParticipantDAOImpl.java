@@ -6,7 +6,13 @@ import com.expensetracker.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * JDBC Implementation of ExpenseParticipantDAO
@@ -38,6 +44,41 @@ public class ExpenseParticipantDAOImpl implements ExpenseParticipantDAO {
         return -1;
     }
 
+    @Override
+    public int[] insertAll(List<ExpenseParticipant> participants) {
+        int[] ids = new int[participants.size()];
+        if (participants.isEmpty()) {
+            return ids;
+        }
+
+        String sql = "INSERT INTO expense_participants (expense_id, user_id, share_amount, is_settled) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (ExpenseParticipant participant : participants) {
+                pstmt.setInt(1, participant.getExpenseId());
+                pstmt.setString(2, participant.getUserId());
+                pstmt.setBigDecimal(3, participant.getShareAmount());
+                pstmt.setBoolean(4, participant.isSettled());
+                pstmt.addBatch();
+            }
+
+            pstmt.executeBatch();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                int i = 0;
+                while (generatedKeys.next() && i < ids.length) {
+                    ids[i] = generatedKeys.getInt(1);
+                    participants.get(i).setId(ids[i]);
+                    i++;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            Arrays.fill(ids, -1);
+        }
+        return ids;
+    }
+
     @Override
     public boolean update(ExpenseParticipant participant) {
         String sql = "UPDATE expense_participants SET share_amount = ?, is_settled = ? WHERE id = ?";
@@ -109,6 +150,43 @@ public class ExpenseParticipantDAOImpl implements ExpenseParticipantDAO {
         return participants;
     }
 
+    @Override
+    public Map<Integer, List<ExpenseParticipant>> findByExpenses(Collection<Integer> expenseIds) {
+        Map<Integer, List<ExpenseParticipant>> byExpense = new HashMap<>();
+        Set<Integer> unique = new LinkedHashSet<>(expenseIds);
+        unique.remove(null);
+        for (Integer id : unique) {
+            byExpense.put(id, new ArrayList<>());
+        }
+        if (unique.isEmpty()) {
+            return byExpense;
+        }
+
+        List<Integer> ids = new ArrayList<>(unique);
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < ids.size(); from += InClause.CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + InClause.CHUNK_SIZE));
+                int size = InClause.paddedSize(chunk.size());
+                String sql = "SELECT * FROM expense_participants WHERE expense_id IN ("
+                        + InClause.placeholders(size) + ") ORDER BY expense_id, id";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < size; i++) {
+                        pstmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ExpenseParticipant participant = mapRowToParticipant(rs);
+                            byExpense.get(participant.getExpenseId()).add(participant);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return byExpense;
+    }
+
     @Override
     public List<ExpenseParticipant> findByUser(String userId) {
         List<ExpenseParticipant> participants = new ArrayList<>();
@@ -3,10 +3,12 @@ package com.expensetracker.dao.impl;
 import com.expensetracker.dao.GroupDAO;
 import com.expensetracker.model.Group;
 import com.expensetracker.util.DBUtil;
+import com.expensetracker.util.JdbcStream;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JDBC Implementation of GroupDAO
@@ -126,6 +128,11 @@ public class GroupDAOImpl implements GroupDAO {
         return groups;
     }
 
+    @Override
+    public Stream<Group> streamAll() {
+        return JdbcStream.query("SELECT * FROM `groups`", null, this::mapRowToGroup);
+    }
+
     private Group mapRowToGroup(ResultSet rs) throws SQLException {
         Group group = new Group();
         group.setGroupId(rs.getInt("group_id"));
@@ -3,10 +3,12 @@ package com.expensetracker.dao.impl;
 import com.expensetracker.dao.GroupMemberDAO;
 import com.expensetracker.model.GroupMember;
 import com.expensetracker.util.DBUtil;
+import com.expensetracker.util.JdbcStream;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JDBC Implementation of GroupMemberDAO
@@ -110,6 +112,51 @@ public class GroupMemberDAOImpl implements GroupMemberDAO {
         return false;
     }
 
+    @Override
+    public int countByGroup(int groupId) {
+        String sql = "SELECT COUNT(*) FROM group_members WHERE group_id = ?";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, groupId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public List<Integer> findCommonGroups(String userA, String userB) {
+        List<Integer> groupIds = new ArrayList<>();
+        String sql = "SELECT a.group_id FROM group_members a "
+                + "JOIN group_members b ON b.group_id = a.group_id AND b.user_id = ? "
+                + "WHERE a.user_id = ? ORDER BY a.group_id";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, userB);
+            pstmt.setString(2, userA);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    groupIds.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return groupIds;
+    }
+
+    @Override
+    public Stream<GroupMember> streamAll() {
+        return JdbcStream.query("SELECT * FROM group_members", null, this::mapRowToGroupMember);
+    }
+
     private GroupMember mapRowToGroupMember(ResultSet rs) throws SQLException {
         GroupMember member = new GroupMember();
         member.setId(rs.getInt("id"));
@@ -0,0 +1,42 @@
+package com.expensetracker.dao.impl;
+
+/**
+ * Helpers for chunked "WHERE x IN (?, ?, ...)" lookups.
+ *
+ * Chunks are padded up to a power of two (repeating the last value), so a
+ * lookup of 7 ids and one of 8 share the same SQL text and the pooled
+ * connection's statement cache only ever sees a handful of IN-list shapes.
+ */
+final class InClause {
+
+    // Ids per IN (...) list; keeps well below the placeholder limit
+    static final int CHUNK_SIZE = 512;
+
+    private InClause() {
+    }
+
+    /**
+     * Number of placeholders to use for a chunk of n values.
+     */
+    static int paddedSize(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return Math.min(size, CHUNK_SIZE);
+    }
+
+    /**
+     * "?, ?, ?" with count placeholders.
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -2,17 +2,30 @@ package com.expensetracker.dao.impl;
 
 import com.expensetracker.dao.SettlementDAO;
 import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementChecksum;
+import com.expensetracker.model.SettlementDelta;
 import com.expensetracker.util.DBUtil;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * JDBC Implementation of SettlementDAO
  */
 public class SettlementDAOImpl implements SettlementDAO {
 
+    // Rows per multi-row upsert; keeps well below the placeholder limit
+    private static final int UPSERT_CHUNK_SIZE = 500;
+
     @Override
     public int insert(Settlement settlement) {
         String sql = "INSERT INTO settlements (group_id, from_user, to_user, net_balance, status) VALUES (?, ?, ?, ?, ?)";
@@ -41,22 +54,169 @@ public class SettlementDAOImpl implements SettlementDAO {
 
     @Override
     public boolean update(Settlement settlement) {
-        String sql = "UPDATE settlements SET net_balance = ?, status = ? WHERE id = ?";
+        String sql = "UPDATE settlements SET net_balance = ?, status = ?, version = version + 1 "
+                + "WHERE id = ? AND version = ?";
         try (Connection conn = DBUtil.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setBigDecimal(1, settlement.getNetBalance());
             pstmt.setString(2, settlement.getStatus().name());
             pstmt.setInt(3, settlement.getId());
+            pstmt.setInt(4, settlement.getVersion());
 
             int rows = pstmt.executeUpdate();
-            return rows > 0;
+            if (rows == 0) {
+                return false; // changed or deleted since it was read
+            }
+            settlement.setVersion(settlement.getVersion() + 1);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    @Override
+    public boolean applyDeltas(int groupId, List<SettlementDelta> deltas) {
+        return applyDeltas(Collections.singletonMap(groupId, deltas));
+    }
+
+    @Override
+    public boolean applyDeltas(Map<Integer, List<SettlementDelta>> deltasByGroup) {
+        Map<Integer, Map<String, SettlementDelta>> merged = merge(deltasByGroup);
+        if (merged.isEmpty()) {
+            return true;
+        }
+
+        // Only a payment (negative delta) can take a balance below zero
+        List<Integer> paidGroups = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, SettlementDelta>> entry : merged.entrySet()) {
+            for (SettlementDelta delta : entry.getValue().values()) {
+                if (delta.getAmount().signum() < 0) {
+                    paidGroups.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        try (Connection conn = DBUtil.getConnection()) {
+            upsert(conn, merged);
+            if (!paidGroups.isEmpty()) {
+                // An overpayment leaves the row negative: zero it and move the
+                // excess to the reverse pair, so the payee owes the payer
+                // instead of the money vanishing into a SETTLED row
+                Map<Integer, List<SettlementDelta>> flips = overpayments(conn, paidGroups);
+                if (!flips.isEmpty()) {
+                    upsert(conn, merge(flips));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Sum deltas per (group, pair); the sorted order also makes concurrent
+    // writers lock uk_settlement rows in the same order
+    private Map<Integer, Map<String, SettlementDelta>> merge(Map<Integer, List<SettlementDelta>> deltasByGroup) {
+        Map<Integer, Map<String, SettlementDelta>> merged = new TreeMap<>();
+        for (Map.Entry<Integer, List<SettlementDelta>> entry : deltasByGroup.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            Map<String, SettlementDelta> pairs = merged.computeIfAbsent(entry.getKey(), k -> new TreeMap<>());
+            for (SettlementDelta delta : entry.getValue()) {
+                String key = delta.getFromUser() + '\u0000' + delta.getToUser();
+                SettlementDelta existing = pairs.get(key);
+                if (existing == null) {
+                    pairs.put(key, new SettlementDelta(delta.getFromUser(), delta.getToUser(), delta.getAmount()));
+                } else {
+                    existing.setAmount(existing.getAmount().add(delta.getAmount()));
+                }
+            }
+        }
+        return merged;
+    }
+
+    private void upsert(Connection conn, Map<Integer, Map<String, SettlementDelta>> merged) throws SQLException {
+        List<Integer> groupIds = new ArrayList<>();
+        List<SettlementDelta> rows = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, SettlementDelta>> entry : merged.entrySet()) {
+            for (SettlementDelta delta : entry.getValue().values()) {
+                groupIds.add(entry.getKey());
+                rows.add(delta);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += UPSERT_CHUNK_SIZE) {
+            int to = Math.min(rows.size(), from + UPSERT_CHUNK_SIZE);
+            try (PreparedStatement pstmt = conn.prepareStatement(buildUpsertSql(to - from))) {
+                int i = 1;
+                for (int row = from; row < to; row++) {
+                    SettlementDelta delta = rows.get(row);
+                    BigDecimal amount = delta.getAmount();
+                    pstmt.setInt(i++, groupIds.get(row));
+                    pstmt.setString(i++, delta.getFromUser());
+                    pstmt.setString(i++, delta.getToUser());
+                    pstmt.setBigDecimal(i++, amount);
+                    pstmt.setBigDecimal(i++, amount);
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Deltas that clear every negative row of the given groups: the row is
+     * raised to zero and the same amount is owed the other way.
+     */
+    private Map<Integer, List<SettlementDelta>> overpayments(Connection conn, List<Integer> groupIds)
+            throws SQLException {
+        Map<Integer, List<SettlementDelta>> flips = new TreeMap<>();
+        for (int from = 0; from < groupIds.size(); from += InClause.CHUNK_SIZE) {
+            List<Integer> chunk = groupIds.subList(from, Math.min(groupIds.size(), from + InClause.CHUNK_SIZE));
+            int size = InClause.paddedSize(chunk.size());
+            String sql = "SELECT group_id, from_user, to_user, net_balance FROM settlements "
+                    + "WHERE group_id IN (" + InClause.placeholders(size) + ") AND net_balance < 0";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < size; i++) {
+                    pstmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        BigDecimal excess = rs.getBigDecimal("net_balance").negate();
+                        String fromUser = rs.getString("from_user");
+                        String toUser = rs.getString("to_user");
+                        List<SettlementDelta> deltas = flips.computeIfAbsent(rs.getInt("group_id"),
+                                k -> new ArrayList<>());
+                        deltas.add(new SettlementDelta(fromUser, toUser, excess));
+                        deltas.add(new SettlementDelta(toUser, fromUser, excess));
+                    }
+                }
+            }
+        }
+        return flips;
+    }
+
+    private String buildUpsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO settlements (group_id, from_user, to_user, net_balance, status) VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?, CASE WHEN ? > 0 THEN 'PENDING' ELSE 'SETTLED' END)");
+        }
+        // status is assigned first so it sees the balance before this delta
+        sql.append(" ON DUPLICATE KEY UPDATE ")
+                .append("status = CASE WHEN net_balance + VALUES(net_balance) <= 0 THEN 'SETTLED' ")
+                .append("WHEN VALUES(net_balance) < 0 THEN 'PARTIAL' ELSE 'PENDING' END, ")
+                .append("net_balance = net_balance + VALUES(net_balance), ")
+                .append("version = version + 1");
+        return sql.toString();
+    }
+
     @Override
     public Settlement findById(int id) {
         String sql = "SELECT * FROM settlements WHERE id = ?";
@@ -131,6 +291,30 @@ public class SettlementDAOImpl implements SettlementDAO {
         return settlements;
     }
 
+    @Override
+    public List<Settlement> findPendingBetween(String userA, String userB) {
+        List<Settlement> settlements = new ArrayList<>();
+        String sql = "SELECT * FROM settlements WHERE ((from_user = ? AND to_user = ?) "
+                + "OR (from_user = ? AND to_user = ?)) AND status IN ('PENDING', 'PARTIAL') "
+                + "ORDER BY group_id, id FOR UPDATE";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, userA);
+            pstmt.setString(2, userB);
+            pstmt.setString(3, userB);
+            pstmt.setString(4, userA);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    settlements.add(mapRowToSettlement(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return settlements;
+    }
+
     @Override
     public List<Settlement> findPendingByGroup(int groupId) {
         List<Settlement> settlements = new ArrayList<>();
@@ -150,6 +334,44 @@ public class SettlementDAOImpl implements SettlementDAO {
         return settlements;
     }
 
+    @Override
+    public List<Settlement> findPendingByGroupForUpdate(int groupId) {
+        List<Settlement> settlements = new ArrayList<>();
+        String sql = "SELECT * FROM settlements WHERE group_id = ? AND status IN ('PENDING', 'PARTIAL') "
+                + "ORDER BY id FOR UPDATE";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, groupId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    settlements.add(mapRowToSettlement(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return settlements;
+    }
+
+    @Override
+    public List<Integer> findPendingGroupIds() {
+        List<Integer> groupIds = new ArrayList<>();
+        String sql = "SELECT DISTINCT group_id FROM settlements WHERE status IN ('PENDING', 'PARTIAL') "
+                + "ORDER BY group_id";
+        try (Connection conn = DBUtil.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                groupIds.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return groupIds;
+    }
+
     @Override
     public List<Settlement> findSettledByGroup(int groupId) {
         List<Settlement> settlements = new ArrayList<>();
@@ -207,6 +429,171 @@ public class SettlementDAOImpl implements SettlementDAO {
         return settlements;
     }
 
+    @Override
+    public Map<String, BigDecimal> netBalancesByGroup(int groupId) {
+        // Each row credits its creditor and debits its debtor; both halves
+        // range-scan uk_settlement on group_id
+        String sql = "SELECT user_id, SUM(amount) AS net_balance FROM ("
+                + "SELECT to_user AS user_id, "
+                + "CASE WHEN status <> 'SETTLED' THEN net_balance ELSE 0 END AS amount "
+                + "FROM settlements WHERE group_id = ? "
+                + "UNION ALL "
+                + "SELECT from_user AS user_id, "
+                + "CASE WHEN status <> 'SETTLED' THEN -net_balance ELSE 0 END AS amount "
+                + "FROM settlements WHERE group_id = ?"
+                + ") b GROUP BY user_id ORDER BY user_id";
+
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, groupId);
+            pstmt.setInt(2, groupId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getString("user_id"), rs.getBigDecimal("net_balance"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return balances;
+    }
+
+    @Override
+    public Map<Integer, SettlementChecksum> checksumsByGroup(Collection<Integer> groupIds) {
+        Map<Integer, SettlementChecksum> checksums = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(groupIds));
+        ids.remove(null);
+
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < ids.size(); from += InClause.CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + InClause.CHUNK_SIZE));
+                int size = InClause.paddedSize(chunk.size());
+                String sql = "SELECT group_id, COUNT(*) AS row_count, COALESCE(SUM(net_balance), 0) AS total, "
+                        + "MAX(last_updated) AS last_updated, COALESCE(SUM(version), 0) AS version_total, "
+                        + "COALESCE(SUM(CASE WHEN status = 'SETTLED' THEN 1 ELSE 0 END), 0) AS settled_count "
+                        + "FROM settlements WHERE group_id IN ("
+                        + InClause.placeholders(size) + ") GROUP BY group_id";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < size; i++) {
+                        pstmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            checksums.put(rs.getInt("group_id"), new SettlementChecksum(
+                                    rs.getInt("row_count"),
+                                    rs.getBigDecimal("total"),
+                                    rs.getTimestamp("last_updated"),
+                                    rs.getLong("version_total"),
+                                    rs.getInt("settled_count")));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+
+        for (Integer id : ids) {
+            checksums.putIfAbsent(id, new SettlementChecksum(0, BigDecimal.ZERO, null, 0, 0));
+        }
+        return checksums;
+    }
+
+    @Override
+    public List<Settlement> findPairsForUpdate(int groupId, Collection<SettlementDelta> pairs) {
+        List<Settlement> settlements = new ArrayList<>();
+        Map<String, SettlementDelta> unique = new TreeMap<>();
+        for (SettlementDelta pair : pairs) {
+            unique.putIfAbsent(pair.getFromUser() + '\u0000' + pair.getToUser(), pair);
+        }
+        List<SettlementDelta> list = new ArrayList<>(unique.values());
+        // 4 placeholders per pair (both directions)
+        int chunkSize = InClause.CHUNK_SIZE / 4;
+
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < list.size(); from += chunkSize) {
+                List<SettlementDelta> chunk = list.subList(from, Math.min(list.size(), from + chunkSize));
+                int size = Math.min(InClause.paddedSize(chunk.size()), chunkSize);
+                StringBuilder sql = new StringBuilder("SELECT * FROM settlements WHERE group_id = ? AND (");
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        sql.append(" OR ");
+                    }
+                    sql.append("(from_user = ? AND to_user = ?) OR (from_user = ? AND to_user = ?)");
+                }
+                sql.append(") ORDER BY id FOR UPDATE");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    int p = 1;
+                    pstmt.setInt(p++, groupId);
+                    for (int i = 0; i < size; i++) {
+                        SettlementDelta pair = chunk.get(Math.min(i, chunk.size() - 1));
+                        pstmt.setString(p++, pair.getFromUser());
+                        pstmt.setString(p++, pair.getToUser());
+                        pstmt.setString(p++, pair.getToUser());
+                        pstmt.setString(p++, pair.getFromUser());
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            settlements.add(mapRowToSettlement(rs));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return settlements;
+    }
+
+    @Override
+    public List<Settlement> findWithReverse(int limit) {
+        List<Settlement> settlements = new ArrayList<>();
+        String sql = "SELECT a.* FROM settlements a JOIN settlements b ON b.group_id = a.group_id "
+                + "AND b.from_user = a.to_user AND b.to_user = a.from_user "
+                + "WHERE a.from_user < a.to_user ORDER BY a.group_id, a.id LIMIT ?";
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    settlements.add(mapRowToSettlement(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return settlements;
+    }
+
+    @Override
+    public boolean deleteByIds(Collection<Integer> ids) {
+        List<Integer> list = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (list.isEmpty()) {
+            return true;
+        }
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < list.size(); from += InClause.CHUNK_SIZE) {
+                List<Integer> chunk = list.subList(from, Math.min(list.size(), from + InClause.CHUNK_SIZE));
+                int size = InClause.paddedSize(chunk.size());
+                String sql = "DELETE FROM settlements WHERE id IN (" + InClause.placeholders(size) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < size; i++) {
+                        pstmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     private Settlement mapRowToSettlement(ResultSet rs) throws SQLException {
         Settlement settlement = new Settlement();
         settlement.setId(rs.getInt("id"));
@@ -216,6 +603,7 @@ public class SettlementDAOImpl implements SettlementDAO {
         settlement.setNetBalance(rs.getBigDecimal("net_balance"));
         settlement.setStatus(Settlement.SettlementStatus.valueOf(rs.getString("status")));
         settlement.setLastUpdated(rs.getTimestamp("last_updated"));
+        settlement.setVersion(rs.getInt("version"));
         return settlement;
     }
 }
@@ -3,10 +3,13 @@ package com.expensetracker.dao.impl;
 import com.expensetracker.dao.TransactionDAO;
 import com.expensetracker.model.Transaction;
 import com.expensetracker.util.DBUtil;
+import com.expensetracker.util.JdbcStream;
+import com.expensetracker.util.PageCursor;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JDBC Implementation of TransactionDAO
@@ -81,6 +84,15 @@ public class TransactionDAOImpl implements TransactionDAO {
         return transactions;
     }
 
+    @Override
+    public Stream<Transaction> streamByUser(String userId) {
+        String sql = "SELECT * FROM transactions WHERE from_user = ? OR to_user = ? ORDER BY created_at DESC";
+        return JdbcStream.query(sql, pstmt -> {
+            pstmt.setString(1, userId);
+            pstmt.setString(2, userId);
+        }, this::mapRowToTransaction);
+    }
+
     @Override
     public List<Transaction> findByUsers(String fromUser, String toUser) {
         List<Transaction> transactions = new ArrayList<>();
@@ -143,6 +155,96 @@ public class TransactionDAOImpl implements TransactionDAO {
         return transactions;
     }
 
+    @Override
+    public Stream<Transaction> streamByGroup(int groupId) {
+        String sql = "SELECT t.* FROM transactions t " +
+                "JOIN expenses e ON t.expense_id = e.expense_id " +
+                "WHERE e.group_id = ? " +
+                "ORDER BY t.created_at DESC";
+        return JdbcStream.query(sql, pstmt -> pstmt.setInt(1, groupId), this::mapRowToTransaction);
+    }
+
+    @Override
+    public List<Transaction> findByUserPage(String userId, PageCursor after, int limit) {
+        // from_user = ? OR to_user = ? cannot use one index for the ordering,
+        // so seek each side on its own (created_at, transaction_id) index and
+        // merge the two short lists
+        String seek = after == null ? ""
+                : "AND (created_at < ? OR (created_at = ? AND transaction_id < ?)) ";
+        String sql = "SELECT * FROM ("
+                + "(SELECT * FROM transactions WHERE from_user = ? " + seek
+                + "ORDER BY created_at DESC, transaction_id DESC LIMIT ?) "
+                + "UNION ALL "
+                + "(SELECT * FROM transactions WHERE to_user = ? AND from_user <> ? " + seek
+                + "ORDER BY created_at DESC, transaction_id DESC LIMIT ?)"
+                + ") t ORDER BY created_at DESC, transaction_id DESC LIMIT ?";
+
+        List<Transaction> transactions = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            pstmt.setString(i++, userId);
+            i = setSeek(pstmt, i, after);
+            pstmt.setInt(i++, limit);
+            pstmt.setString(i++, userId);
+            pstmt.setString(i++, userId);
+            i = setSeek(pstmt, i, after);
+            pstmt.setInt(i++, limit);
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapRowToTransaction(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> findByGroupPage(int groupId, PageCursor after, int limit) {
+        String sql = "SELECT t.* FROM transactions t " +
+                "JOIN expenses e ON t.expense_id = e.expense_id " +
+                "WHERE e.group_id = ? " +
+                (after == null ? ""
+                        : "AND (t.created_at < ? OR (t.created_at = ? AND t.transaction_id < ?)) ") +
+                "ORDER BY t.created_at DESC, t.transaction_id DESC LIMIT ?";
+
+        List<Transaction> transactions = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            pstmt.setInt(i++, groupId);
+            i = setSeek(pstmt, i, after);
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapRowToTransaction(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return transactions;
+    }
+
+    /**
+     * Bind the (created_at, created_at, transaction_id) seek parameters if
+     * there is a cursor; returns the next parameter index.
+     */
+    private int setSeek(PreparedStatement pstmt, int index, PageCursor after) throws SQLException {
+        if (after == null) {
+            return index;
+        }
+        pstmt.setTimestamp(index++, after.getCreatedAt());
+        pstmt.setTimestamp(index++, after.getCreatedAt());
+        pstmt.setInt(index++, after.getId());
+        return index;
+    }
+
     private Transaction mapRowToTransaction(ResultSet rs) throws SQLException {
         Transaction transaction = new Transaction();
         transaction.setTransactionId(rs.getInt("transaction_id"));
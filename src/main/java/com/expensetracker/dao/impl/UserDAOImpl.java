@@ -3,10 +3,17 @@ package com.expensetracker.dao.impl;
 import com.expensetracker.dao.UserDAO;
 import com.expensetracker.model.User;
 import com.expensetracker.util.DBUtil;
+import com.expensetracker.util.JdbcStream;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * JDBC Implementation of UserDAO
@@ -83,6 +90,39 @@ public class UserDAOImpl implements UserDAO {
         return null;
     }
 
+    @Override
+    public Map<String, User> findByPhones(Collection<String> phoneNumbers) {
+        Map<String, User> users = new HashMap<>();
+        Set<String> unique = new LinkedHashSet<>(phoneNumbers);
+        unique.remove(null);
+        if (unique.isEmpty()) {
+            return users;
+        }
+
+        List<String> ids = new ArrayList<>(unique);
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < ids.size(); from += InClause.CHUNK_SIZE) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + InClause.CHUNK_SIZE));
+                int size = InClause.paddedSize(chunk.size());
+                String sql = "SELECT * FROM users WHERE phone_number IN (" + InClause.placeholders(size) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < size; i++) {
+                        pstmt.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            User user = mapRowToUser(rs);
+                            users.put(user.getPhoneNumber(), user);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
     @Override
     public User findByEmail(String email) {
         String sql = "SELECT * FROM users WHERE email = ?";
@@ -118,6 +158,11 @@ public class UserDAOImpl implements UserDAO {
         return users;
     }
 
+    @Override
+    public Stream<User> streamAll() {
+        return JdbcStream.query("SELECT * FROM users", null, this::mapRowToUser);
+    }
+
     private User mapRowToUser(ResultSet rs) throws SQLException {
         User user = new User();
         user.setPhoneNumber(rs.getString("phone_number"));
@@ -0,0 +1,184 @@
+package com.expensetracker.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money Value Class
+ *
+ * PURPOSE:
+ * - An amount in whole cents (the DECIMAL(10, 2) columns' unit), held in a
+ * long so sums, comparisons and splits need no BigDecimal arithmetic
+ * - Exact splits: split() and allocate() hand out every cent of the total
+ * (largest remainder), so the shares always add up to the amount
+ *
+ * Immutable. Not a table of its own; services convert with of() and
+ * toBigDecimal() where amounts come from or go to the DAOs and JSON.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    // Amount in cents (minor units)
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Amount from a cent count.
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Amount from a BigDecimal, rounded half-up to whole cents.
+     *
+     * @throws ArithmeticException if it does not fit in a long
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    // Getters
+    public long getCents() {
+        return cents;
+    }
+
+    /**
+     * Same amount as a BigDecimal with scale 2 (for DAOs and JSON).
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // Arithmetic (exact; overflow throws ArithmeticException)
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public Money abs() {
+        return cents < 0 ? negate() : this;
+    }
+
+    public Money min(Money other) {
+        return cents <= other.cents ? this : other;
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    /**
+     * Split into parts shares that differ by at most one cent and add up to
+     * this amount exactly; the first shares get the leftover cents
+     * (100.00 / 3 = 33.34, 33.33, 33.33).
+     */
+    public Money[] split(int parts) {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("parts must be positive");
+        }
+        long base = cents / parts;
+        long leftover = cents % parts; // same sign as cents
+        long step = Long.signum(leftover);
+        Money[] shares = new Money[parts];
+        for (int i = 0; i < parts; i++) {
+            shares[i] = ofCents(i < Math.abs(leftover) ? base + step : base);
+        }
+        return shares;
+    }
+
+    /**
+     * Split in proportion to non-negative weights (largest remainder): each
+     * share is rounded down, then the leftover cents go to the shares with
+     * the largest remainders (ties to the earlier share). The shares add up
+     * to this amount exactly.
+     */
+    public Money[] allocate(long... weights) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("weights must not be empty");
+        }
+        long totalWeight = 0;
+        for (long weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("weights must not be negative");
+            }
+            totalWeight = Math.addExact(totalWeight, weight);
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("weights must not all be zero");
+        }
+
+        long magnitude = Math.abs(cents);
+        long[] shares = new long[weights.length];
+        long[] remainders = new long[weights.length];
+        long handedOut = 0;
+        for (int i = 0; i < weights.length; i++) {
+            // magnitude * weight / totalWeight without overflowing a long
+            BigDecimal exact = BigDecimal.valueOf(magnitude).multiply(BigDecimal.valueOf(weights[i]));
+            BigDecimal[] qr = exact.divideAndRemainder(BigDecimal.valueOf(totalWeight));
+            shares[i] = qr[0].longValueExact();
+            remainders[i] = qr[1].longValueExact();
+            handedOut += shares[i];
+        }
+
+        for (long left = magnitude - handedOut; left > 0; left--) {
+            int best = -1;
+            for (int i = 0; i < weights.length; i++) {
+                if (remainders[i] >= 0 && (best < 0 || remainders[i] > remainders[best])) {
+                    best = i;
+                }
+            }
+            shares[best]++;
+            remainders[best] = -1; // at most one extra cent each
+        }
+
+        Money[] result = new Money[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            result[i] = ofCents(cents < 0 ? -shares[i] : shares[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money && ((Money) o).cents == cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
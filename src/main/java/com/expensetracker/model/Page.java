@@ -0,0 +1,62 @@
+package com.expensetracker.model;
+
+import java.util.List;
+
+/**
+ * Page Model Class
+ *
+ * PURPOSE:
+ * - One page of a keyset-paginated listing (newest first)
+ * - nextCursor is an opaque token for the following page; null on the last
+ * page
+ *
+ * Not a table of its own; returned by the paged service methods and
+ * serialized as {"items": [...], "nextCursor": "..."}.
+ */
+public class Page<T> {
+
+    // Rows on this page
+    private List<T> items;
+
+    // Token to pass back as ?cursor= for the next page (null = no more rows)
+    private String nextCursor;
+
+    // Default constructor
+    public Page() {
+    }
+
+    // Parameterized constructor
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + (items != null ? items.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
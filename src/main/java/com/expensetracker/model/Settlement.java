@@ -14,6 +14,7 @@ import java.sql.Timestamp;
  * - from_user -> users(user_id)
  * - to_user -> users(user_id)
  * - Unique Constraint: (group_id, from_user, to_user)
+ * - version: incremented by every write, checked by SettlementDAO.update()
  * 
  * PURPOSE:
  * - Tracks NET balance between two users within a group
@@ -52,6 +53,9 @@ public class Settlement {
     // Last update timestamp
     private Timestamp lastUpdated;
 
+    // Row version when read (optimistic locking)
+    private int version;
+
     /**
      * Settlement status enumeration
      * Maps to ENUM('PENDING', 'PARTIAL', 'SETTLED') in database
@@ -143,6 +147,14 @@ public class Settlement {
         this.lastUpdated = lastUpdated;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Settlement{" +
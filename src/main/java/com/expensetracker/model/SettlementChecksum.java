@@ -0,0 +1,125 @@
+package com.expensetracker.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * SettlementChecksum Model Class
+ *
+ * PURPOSE:
+ * - Cheap summary of one group's settlements rows: row count, balance total,
+ * latest last_updated, total of the row versions and number of SETTLED rows
+ * - Every write through the application or the payment trigger bumps a row's
+ * version, and a status change that does not (a manual UPDATE) still moves
+ * the SETTLED count or the balance, so two equal checksums mean an
+ * in-memory copy of the rows is still current
+ *
+ * Not a table of its own; computed by SettlementDAO.checksumsByGroup() with
+ * COUNT/SUM/MAX over the group's rows.
+ */
+public class SettlementChecksum {
+
+    // Number of settlements rows in the group
+    private int rowCount;
+
+    // SUM(net_balance) over those rows
+    private BigDecimal totalBalance;
+
+    // MAX(last_updated); null when the group has no rows
+    private Timestamp lastUpdated;
+
+    // SUM(version) over the rows
+    private long versionTotal;
+
+    // Number of rows with status SETTLED
+    private int settledCount;
+
+    // Default constructor
+    public SettlementChecksum() {
+    }
+
+    // Parameterized constructor
+    public SettlementChecksum(int rowCount, BigDecimal totalBalance, Timestamp lastUpdated,
+            long versionTotal, int settledCount) {
+        this.rowCount = rowCount;
+        this.totalBalance = totalBalance;
+        this.lastUpdated = lastUpdated;
+        this.versionTotal = versionTotal;
+        this.settledCount = settledCount;
+    }
+
+    // Getters and Setters
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public Timestamp getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(Timestamp lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    public long getVersionTotal() {
+        return versionTotal;
+    }
+
+    public void setVersionTotal(long versionTotal) {
+        this.versionTotal = versionTotal;
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public void setSettledCount(int settledCount) {
+        this.settledCount = settledCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SettlementChecksum)) {
+            return false;
+        }
+        SettlementChecksum other = (SettlementChecksum) o;
+        // compareTo: 0 and 0.00 are the same total
+        return rowCount == other.rowCount
+                && versionTotal == other.versionTotal
+                && settledCount == other.settledCount
+                && (totalBalance == null ? other.totalBalance == null
+                        : other.totalBalance != null && totalBalance.compareTo(other.totalBalance) == 0)
+                && (lastUpdated == null ? other.lastUpdated == null : lastUpdated.equals(other.lastUpdated));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rowCount + Long.hashCode(versionTotal)) + (lastUpdated != null ? lastUpdated.hashCode() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementChecksum{" +
+                "rowCount=" + rowCount +
+                ", totalBalance=" + totalBalance +
+                ", lastUpdated=" + lastUpdated +
+                ", versionTotal=" + versionTotal +
+                ", settledCount=" + settledCount +
+                '}';
+    }
+}
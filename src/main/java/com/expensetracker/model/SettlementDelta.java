@@ -0,0 +1,71 @@
+package com.expensetracker.model;
+
+import java.math.BigDecimal;
+
+/**
+ * SettlementDelta Model Class
+ *
+ * PURPOSE:
+ * - A change to apply to one settlements row (group_id, from_user, to_user)
+ * - Positive amount: fromUser owes toUser more (new expense share)
+ * - Negative amount: fromUser paid toUser back (payment)
+ *
+ * Not a table of its own; used by SettlementDAO.applyDeltas() to upsert
+ * many settlement rows in one statement.
+ */
+public class SettlementDelta {
+
+    // User who owes money (debtor)
+    private String fromUser;
+
+    // User who is owed money (creditor)
+    private String toUser;
+
+    // Signed change to net_balance
+    private BigDecimal amount;
+
+    // Default constructor
+    public SettlementDelta() {
+    }
+
+    // Parameterized constructor
+    public SettlementDelta(String fromUser, String toUser, BigDecimal amount) {
+        this.fromUser = fromUser;
+        this.toUser = toUser;
+        this.amount = amount;
+    }
+
+    // Getters and Setters
+    public String getFromUser() {
+        return fromUser;
+    }
+
+    public void setFromUser(String fromUser) {
+        this.fromUser = fromUser;
+    }
+
+    public String getToUser() {
+        return toUser;
+    }
+
+    public void setToUser(String toUser) {
+        this.toUser = toUser;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementDelta{" +
+                "fromUser='" + fromUser + '\'' +
+                ", toUser='" + toUser + '\'' +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.SettlementDAO;
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.service.SettlementService.CycleCancellation;
+import com.expensetracker.util.DatabaseConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CycleCancellationJob - Periodic cycle cancellation over all groups
+ *
+ * Runs SettlementService.cancelCycles() for every group with pending
+ * settlements. Groups never share settlement rows, so they are processed in
+ * parallel (settlement.cycleCancelThreads), one transaction per group.
+ *
+ * Off by default; settlement.cycleCancelIntervalMinutes > 0 schedules it at
+ * application start.
+ */
+public class CycleCancellationJob {
+
+    private static final long INTERVAL_MINUTES = DatabaseConfig.getLongSetting(
+            "settlement.cycleCancelIntervalMinutes", "EXPENSE_TRACKER_SETTLEMENT_CYCLE_CANCEL_INTERVAL_MINUTES", 0);
+    private static final int THREADS = (int) Math.max(1, DatabaseConfig.getLongSetting(
+            "settlement.cycleCancelThreads", "EXPENSE_TRACKER_SETTLEMENT_CYCLE_CANCEL_THREADS", 4));
+
+    private static ScheduledExecutorService scheduler;
+
+    private final SettlementDAO settlementDAO;
+    private final SettlementService settlementService;
+
+    public CycleCancellationJob() {
+        this.settlementDAO = new SettlementDAOImpl();
+        this.settlementService = new SettlementService();
+    }
+
+    /**
+     * Schedule runAll() every settlement.cycleCancelIntervalMinutes, if set.
+     */
+    public static synchronized void startInBackground() {
+        if (scheduler != null || INTERVAL_MINUTES <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("cycle-cancel"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                int cycles = new CycleCancellationJob().runAll();
+                if (cycles > 0) {
+                    System.out.println("Cycle cancellation removed " + cycles + " cycles");
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Cycle cancellation failed: " + e.getMessage());
+            }
+        }, INTERVAL_MINUTES, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stop the schedule (a run in progress finishes its current groups).
+     */
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Cancel cycles in every group with pending settlements.
+     *
+     * @return total number of cycles cancelled
+     */
+    public int runAll() {
+        List<Integer> groupIds = settlementDAO.findPendingGroupIds();
+        if (groupIds.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(THREADS, groupIds.size()),
+                daemonThreads("cycle-cancel-worker"));
+        try {
+            List<Future<CycleCancellation>> results = new ArrayList<>(groupIds.size());
+            for (Integer groupId : groupIds) {
+                results.add(workers.submit(() -> settlementService.cancelCycles(groupId)));
+            }
+
+            int cycles = 0;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    cycles += results.get(i).get().cyclesCancelled;
+                } catch (ExecutionException e) {
+                    // One group failing (rolled back) does not stop the others
+                    System.err.println("Cycle cancellation failed for group " + groupIds.get(i) + ": "
+                            + e.getCause().getMessage());
+                }
+            }
+            return cycles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Money;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * CycleCanceller - Removes debt cycles from a group's pending settlements
+ *
+ * A owes B, B owes C and C owes A: the smallest of the three debts can be
+ * taken off every edge of the cycle without changing what anyone owes or is
+ * owed overall, and that edge disappears. Unlike DebtSimplifier, nobody ends
+ * up paying someone they did not owe before; edges only shrink or vanish.
+ *
+ * ALGORITHM:
+ * 1. Build the graph debtor -> creditor from the pending rows (long cents)
+ * 2. Depth-first search; an edge back to a node on the current path closes a
+ * cycle
+ * 3. Subtract the cycle's smallest edge from all its edges, drop the edges
+ * that reach zero and search again
+ *
+ * Each cancellation removes at least one edge, so there are at most E rounds
+ * of O(V + E). Nodes and edges are visited in user ID order, so the same
+ * rows always give the same result.
+ */
+public final class CycleCanceller {
+
+    private CycleCanceller() {
+    }
+
+    /**
+     * What cancel() found for one group.
+     */
+    public static final class Plan {
+        private final List<SettlementDelta> deltas;
+        private final int cycles;
+        private final int edgesBefore;
+        private final int edgesClosed;
+        private final Money amountCancelled;
+
+        Plan(List<SettlementDelta> deltas, int cycles, int edgesBefore, int edgesClosed, Money amountCancelled) {
+            this.deltas = deltas;
+            this.cycles = cycles;
+            this.edgesBefore = edgesBefore;
+            this.edgesClosed = edgesClosed;
+            this.amountCancelled = amountCancelled;
+        }
+
+        /** Negative delta per reduced edge, ready for applyDeltas(). */
+        public List<SettlementDelta> getDeltas() {
+            return deltas;
+        }
+
+        public int getCycles() {
+            return cycles;
+        }
+
+        public int getEdgesBefore() {
+            return edgesBefore;
+        }
+
+        public int getEdgesClosed() {
+            return edgesClosed;
+        }
+
+        /** Sum of all reductions (each cycle counts once per edge). */
+        public Money getAmountCancelled() {
+            return amountCancelled;
+        }
+    }
+
+    /**
+     * Find and cancel every cycle among the given pending rows.
+     */
+    public static Plan cancel(List<Settlement> pending) {
+        // Sum rows per directed pair (one row per pair in practice)
+        Map<String, Map<String, long[]>> graph = new TreeMap<>();
+        TreeSet<String> userSet = new TreeSet<>();
+        for (Settlement s : pending) {
+            long cents = Money.of(s.getNetBalance()).getCents();
+            if (cents <= 0 || s.getFromUser().equals(s.getToUser())) {
+                continue;
+            }
+            graph.computeIfAbsent(s.getFromUser(), k -> new TreeMap<>())
+                    .computeIfAbsent(s.getToUser(), k -> new long[1])[0] += cents;
+            userSet.add(s.getFromUser());
+            userSet.add(s.getToUser());
+        }
+
+        // Index users and store edges as arrays: to[e], weight[e], reduced[e]
+        String[] users = userSet.toArray(new String[0]);
+        Map<String, Integer> index = new HashMap<>(users.length * 2);
+        for (int i = 0; i < users.length; i++) {
+            index.put(users[i], i);
+        }
+        int edgeCount = 0;
+        for (Map<String, long[]> out : graph.values()) {
+            edgeCount += out.size();
+        }
+        int[] firstEdge = new int[users.length + 1];
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        long[] weight = new long[edgeCount];
+        long[] reduced = new long[edgeCount];
+        int e = 0;
+        for (int u = 0; u < users.length; u++) {
+            firstEdge[u] = e;
+            Map<String, long[]> out = graph.get(users[u]);
+            if (out != null) {
+                for (Map.Entry<String, long[]> edge : out.entrySet()) {
+                    from[e] = u;
+                    to[e] = index.get(edge.getKey());
+                    weight[e] = edge.getValue()[0];
+                    e++;
+                }
+            }
+        }
+        firstEdge[users.length] = e;
+
+        int cycles = 0;
+        int closed = 0;
+        long cancelledCents = 0;
+        int[] path = new int[edgeCount]; // edges on the current DFS path
+        int[] next = new int[users.length]; // next edge to try per node
+        int[] onPath = new int[users.length]; // depth + 1 while on the path, else 0
+        boolean[] done = new boolean[users.length];
+
+        boolean found = true;
+        while (found) {
+            found = false;
+            Arrays.fill(done, false);
+            for (int root = 0; root < users.length && !found; root++) {
+                if (done[root]) {
+                    continue;
+                }
+                // Iterative DFS from root
+                int depth = 0;
+                int node = root;
+                onPath[root] = 1;
+                next[root] = firstEdge[root];
+                while (true) {
+                    if (next[node] < firstEdge[node + 1]) {
+                        int edge = next[node]++;
+                        if (weight[edge] == 0) {
+                            continue;
+                        }
+                        int target = to[edge];
+                        if (onPath[target] > 0) {
+                            // Cycle: path edges from target's depth, plus edge
+                            int start = onPath[target] - 1;
+                            long min = weight[edge];
+                            for (int i = start; i < depth; i++) {
+                                min = Math.min(min, weight[path[i]]);
+                            }
+                            for (int i = start; i <= depth; i++) {
+                                int cut = i < depth ? path[i] : edge;
+                                weight[cut] -= min;
+                                reduced[cut] += min;
+                                cancelledCents += min;
+                                if (weight[cut] == 0) {
+                                    closed++;
+                                }
+                            }
+                            cycles++;
+                            found = true;
+                            break;
+                        }
+                        if (!done[target]) {
+                            path[depth++] = edge;
+                            node = target;
+                            onPath[node] = depth + 1;
+                            next[node] = firstEdge[node];
+                        }
+                    } else {
+                        // All edges tried: node is on no remaining cycle
+                        // through the current path; backtrack
+                        done[node] = true;
+                        onPath[node] = 0;
+                        if (depth == 0) {
+                            break;
+                        }
+                        node = from[path[--depth]];
+                    }
+                }
+                // Clear the path markers left by an early exit
+                for (int i = 0; i < depth; i++) {
+                    onPath[from[path[i]]] = 0;
+                }
+                onPath[node] = 0;
+            }
+        }
+
+        List<SettlementDelta> deltas = new ArrayList<>();
+        for (int i = 0; i < edgeCount; i++) {
+            if (reduced[i] > 0) {
+                deltas.add(new SettlementDelta(users[from[i]], users[to[i]],
+                        Money.ofCents(-reduced[i]).toBigDecimal()));
+            }
+        }
+        return new Plan(deltas, cycles, edgeCount, closed, Money.ofCents(cancelledCents));
+    }
+}
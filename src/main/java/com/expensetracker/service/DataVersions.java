@@ -0,0 +1,94 @@
+package com.expensetracker.service;
+
+import com.expensetracker.util.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataVersions - Change counters for the data the read endpoints serve
+ *
+ * Every kind of data has a counter per group and a total. The services call
+ * changed() when they write; the counters move on when the transaction ends
+ * (after commit, and after GroupLedger has applied the change), so reading a
+ * version before querying never labels data older than that version. The
+ * controllers turn the versions into ETags (ConditionalGet).
+ *
+ * - changed(kind, groupId) bumps the group's counter and the kind's total
+ * - changed(kind) bumps only the total, for changes not tied to one group
+ * - The epoch is random per process, so versions from before a restart
+ * never match
+ * - Only this process's writes are seen (like GroupLedger)
+ */
+public final class DataVersions {
+
+    /**
+     * What changed
+     */
+    public enum Kind {
+        GROUPS, // groups and their members
+        USERS,
+        EXPENSES,
+        PAYMENTS,
+        SETTLEMENTS
+    }
+
+    private static final String EPOCH = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    private static final Map<Kind, AtomicLong> TOTALS = new EnumMap<>(Kind.class);
+    // One counter per group written since startup
+    private static final Map<Kind, ConcurrentHashMap<Integer, AtomicLong>> BY_GROUP = new EnumMap<>(Kind.class);
+
+    static {
+        for (Kind kind : Kind.values()) {
+            TOTALS.put(kind, new AtomicLong());
+            BY_GROUP.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    private DataVersions() {
+    }
+
+    /**
+     * A group's data of this kind is being changed: move the versions on
+     * when the current transaction ends (at once outside a transaction).
+     */
+    public static void changed(Kind kind, int groupId) {
+        TransactionTemplate.onCompletion(() -> {
+            BY_GROUP.get(kind).computeIfAbsent(groupId, k -> new AtomicLong()).incrementAndGet();
+            TOTALS.get(kind).incrementAndGet();
+        });
+    }
+
+    /**
+     * Data of this kind not tied to one group is being changed.
+     */
+    public static void changed(Kind kind) {
+        TransactionTemplate.onCompletion(() -> TOTALS.get(kind).incrementAndGet());
+    }
+
+    /**
+     * Version of a group's data of this kind (0 if not written since startup)
+     */
+    public static long version(Kind kind, int groupId) {
+        AtomicLong version = BY_GROUP.get(kind).get(groupId);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Version of all data of this kind
+     */
+    public static long version(Kind kind) {
+        return TOTALS.get(kind).get();
+    }
+
+    /**
+     * Random ID of this process, to tell its versions from another run's
+     */
+    public static String getEpoch() {
+        return EPOCH;
+    }
+}
@@ -0,0 +1,356 @@
+package com.expensetracker.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * DebtSimplifier - Minimal-transfer settlement plan from net balances
+ *
+ * ALGORITHM (greedy, O(n log n)):
+ * 1. Split the members into creditors (net > 0) and debtors (net < 0)
+ * 2. Repeatedly match the largest creditor with the largest debtor and
+ * transfer the smaller of the two amounts
+ * 3. Whoever still has a balance goes back on its heap
+ *
+ * Every transfer settles at least one member, so a group of n members needs
+ * at most n - 1 transfers.
+ *
+ * Amounts are long cents and the heaps are plain int/long arrays, so nothing
+ * is boxed per member. Ties on amount go to the smaller user ID, so the same
+ * balances always give the same plan.
+ *
+ * EXACT MODE (simplifyOptimal):
+ * The greedy plan can use more transfers than needed: when a subset of
+ * members nets to zero it can be settled on its own, and k members that net
+ * to zero need only k - 1 transfers. The minimum is therefore
+ * (members with a balance) - (max number of disjoint zero-sum subsets), found
+ * with a bitmask DP over the members. That is exponential, so it is only
+ * tried for small groups and within a time budget; otherwise the greedy plan
+ * is returned.
+ *
+ * TIME BUDGET:
+ * - The DP is skipped before its tables are allocated when its estimated
+ * cost (n * 2^(n-1) steps) does not fit the budget, and abandoned if it
+ * runs past the deadline anyway
+ * - At most MAX_CONCURRENT_EXACT searches run at once (each may hold up to
+ * ~9 MB of tables); further callers get the greedy plan
+ * - The greedy plan takes no budget: it is O(n log n) over the group's
+ * members (well under a millisecond for thousands) and always completes,
+ * so there is nothing to cut short; it is what the limits above fall
+ * back to.
+ */
+public final class DebtSimplifier {
+
+    // Hard ceiling for simplifyOptimal(): 2^20 masks is ~9 MB of tables
+    public static final int MAX_EXACT_MEMBERS = 20;
+
+    // Exact searches allowed to run (and hold their tables) at the same time
+    static final int MAX_CONCURRENT_EXACT = 2;
+
+    // Measured cost of one DP step, with headroom for a cold JIT
+    private static final long NANOS_PER_STEP = 2;
+
+    private static final Semaphore EXACT_SEARCHES = new Semaphore(MAX_CONCURRENT_EXACT);
+
+    private DebtSimplifier() {
+    }
+
+    /**
+     * One payment of the plan: fromUser pays toUser amountCents.
+     */
+    public static final class Transfer {
+        private final String fromUser;
+        private final String toUser;
+        private final long amountCents;
+
+        public Transfer(String fromUser, String toUser, long amountCents) {
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+            this.amountCents = amountCents;
+        }
+
+        public String getFromUser() {
+            return fromUser;
+        }
+
+        public String getToUser() {
+            return toUser;
+        }
+
+        public long getAmountCents() {
+            return amountCents;
+        }
+
+        @Override
+        public String toString() {
+            return fromUser + " -> " + toUser + ": " + amountCents;
+        }
+    }
+
+    /**
+     * Build the plan. Runs in O(n log n), so it needs no time budget.
+     *
+     * @param netCents net balance per user in cents; positive = is owed money,
+     *                 negative = owes money. Should sum to zero; any
+     *                 remainder is left unmatched.
+     * @return transfers in the order they were matched
+     */
+    public static List<Transfer> simplify(Map<String, Long> netCents) {
+        int n = netCents.size();
+        String[] users = netCents.keySet().toArray(new String[0]);
+        // Sorted ids make heap ties (and so the plan) independent of map order
+        Arrays.sort(users);
+
+        long[] balance = new long[n];
+        LongMaxHeap creditors = new LongMaxHeap(n);
+        LongMaxHeap debtors = new LongMaxHeap(n);
+        for (int i = 0; i < n; i++) {
+            long net = netCents.get(users[i]);
+            balance[i] = net;
+            if (net > 0) {
+                creditors.push(i, net);
+            } else if (net < 0) {
+                debtors.push(i, -net);
+            }
+        }
+
+        List<Transfer> transfers = new ArrayList<>(Math.max(0, Math.min(n - 1,
+                creditors.size() + debtors.size() - 1)));
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            int creditor = creditors.pop();
+            int debtor = debtors.pop();
+            long amount = Math.min(balance[creditor], -balance[debtor]);
+
+            transfers.add(new Transfer(users[debtor], users[creditor], amount));
+            balance[creditor] -= amount;
+            balance[debtor] += amount;
+
+            if (balance[creditor] > 0) {
+                creditors.push(creditor, balance[creditor]);
+            }
+            if (balance[debtor] < 0) {
+                debtors.push(debtor, -balance[debtor]);
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * Build a plan with the fewest possible transfers, or the greedy plan if
+     * the group is too large or the budget runs out.
+     *
+     * @param netCents        net balance per user in cents (as for simplify())
+     * @param maxExactMembers largest number of members with a balance to
+     *                        solve exactly (after pairs that cancel out are
+     *                        taken out); memory grows as 2^n, capped at
+     *                        MAX_EXACT_MEMBERS
+     * @param budgetNanos     time allowed for the exact search
+     */
+    public static List<Transfer> simplifyOptimal(Map<String, Long> netCents,
+            int maxExactMembers, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        String[] users = netCents.keySet().toArray(new String[0]);
+        Arrays.sort(users);
+
+        // Two members whose balances cancel out always form their own subset
+        // in some optimal plan; settling them first shrinks the search
+        List<Transfer> transfers = new ArrayList<>();
+        Map<Long, List<String>> unmatched = new HashMap<>();
+        List<String> rest = new ArrayList<>();
+        for (String user : users) {
+            long net = netCents.get(user);
+            if (net == 0) {
+                continue;
+            }
+            List<String> opposite = unmatched.get(-net);
+            if (opposite != null && !opposite.isEmpty()) {
+                String other = opposite.remove(0);
+                transfers.add(net < 0 ? new Transfer(user, other, -net) : new Transfer(other, user, net));
+            } else {
+                unmatched.computeIfAbsent(net, k -> new ArrayList<>()).add(user);
+            }
+        }
+        for (List<String> left : unmatched.values()) {
+            rest.addAll(left);
+        }
+        Collections.sort(rest);
+
+        int n = rest.size();
+        if (n > Math.min(maxExactMembers, MAX_EXACT_MEMBERS)) {
+            return simplify(netCents);
+        }
+        // Check the cost before allocating 2^n-sized tables
+        long steps = n == 0 ? 0 : (long) n << (n - 1);
+        if (steps * NANOS_PER_STEP > deadline - System.nanoTime()) {
+            return simplify(netCents);
+        }
+        if (!EXACT_SEARCHES.tryAcquire()) {
+            return simplify(netCents);
+        }
+        try {
+            return solveExact(rest, netCents, transfers, deadline);
+        } finally {
+            EXACT_SEARCHES.release();
+        }
+    }
+
+    /**
+     * Bitmask DP over the members in rest; transfers already holds the plan
+     * for the pairs taken out. The greedy plan if the deadline passes.
+     */
+    private static List<Transfer> solveExact(List<String> rest, Map<String, Long> netCents,
+            List<Transfer> transfers, long deadline) {
+        int n = rest.size();
+        long[] net = new long[n];
+        for (int i = 0; i < n; i++) {
+            net[i] = netCents.get(rest.get(i));
+        }
+
+        // sum[mask]: total of the members in mask
+        // best[mask]: max number of zero-sum blocks an ordering of mask can
+        // be cut into = max over i of best[mask - i], +1 if sum[mask] == 0
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        byte[] best = new byte[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & 0xFFF) == 0 && System.nanoTime() > deadline) {
+                return simplify(netCents);
+            }
+            int low = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + net[low];
+            int b = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int prev = best[mask & ~(bits & -bits)];
+                if (prev > b) {
+                    b = prev;
+                }
+            }
+            best[mask] = (byte) (sum[mask] == 0 ? b + 1 : b);
+        }
+
+        // Walk back from the full set, removing one member at a time along an
+        // optimal path; each stretch between zero-sum masks is one subset
+        List<String> block = new ArrayList<>();
+        int mask = full;
+        while (mask != 0) {
+            int target = best[mask] - (sum[mask] == 0 ? 1 : 0);
+            if (sum[mask] == 0 && !block.isEmpty()) {
+                transfers.addAll(settleBlock(block, netCents));
+                block.clear();
+            }
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int bit = bits & -bits;
+                if (best[mask & ~bit] == target) {
+                    block.add(rest.get(Integer.numberOfTrailingZeros(bit)));
+                    mask &= ~bit;
+                    break;
+                }
+            }
+        }
+        if (!block.isEmpty()) {
+            transfers.addAll(settleBlock(block, netCents));
+        }
+        return transfers;
+    }
+
+    /**
+     * Greedy plan for one zero-sum subset: k members, at most k - 1 transfers.
+     */
+    private static List<Transfer> settleBlock(List<String> members, Map<String, Long> netCents) {
+        Map<String, Long> nets = new HashMap<>(members.size() * 2);
+        for (String member : members) {
+            nets.put(member, netCents.get(member));
+        }
+        return simplify(nets);
+    }
+
+    /**
+     * Binary max-heap of member indexes keyed by amount; equal amounts pop
+     * the smaller index first. Holds each index at most once.
+     */
+    private static final class LongMaxHeap {
+        private final int[] index;
+        private final long[] key;
+        private int size;
+
+        LongMaxHeap(int capacity) {
+            index = new int[capacity];
+            key = new long[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int i, long amount) {
+            int pos = size++;
+            index[pos] = i;
+            key[pos] = amount;
+            siftUp(pos);
+        }
+
+        int pop() {
+            int top = index[0];
+            size--;
+            if (size > 0) {
+                index[0] = index[size];
+                key[0] = key[size];
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private boolean above(int a, int b) {
+            return key[a] > key[b] || (key[a] == key[b] && index[a] < index[b]);
+        }
+
+        private void siftUp(int pos) {
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (!above(pos, parent)) {
+                    break;
+                }
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos) {
+            while (true) {
+                int left = 2 * pos + 1;
+                if (left >= size) {
+                    break;
+                }
+                int best = left;
+                int right = left + 1;
+                if (right < size && above(right, left)) {
+                    best = right;
+                }
+                if (!above(best, pos)) {
+                    break;
+                }
+                swap(pos, best);
+                pos = best;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int i = index[a];
+            index[a] = index[b];
+            index[b] = i;
+            long k = key[a];
+            key[a] = key[b];
+            key[b] = k;
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.expensetracker.service;
 
 import com.expensetracker.dao.*;
+import com.expensetracker.dao.cache.DAOFactory;
 import com.expensetracker.dao.impl.*;
 import com.expensetracker.model.*;
+import com.expensetracker.util.PageCursor;
+import com.expensetracker.util.TransactionRetry;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ExpenseService - Business Logic for Expense Operations
@@ -21,19 +27,31 @@ import java.util.HashMap;
  * LAYER: Business Logic Layer
  * DEPENDENCIES: ExpenseDAO, ExpenseParticipantDAO, SettlementDAO,
  * GroupMemberDAO
+ * 
+ * ACID PROPERTIES:
+ * - The expense, its participants and the settlement updates are written in
+ * one TransactionTemplate unit of work (one connection, one commit),
+ * rerun by TransactionRetry if it hits a deadlock or lock timeout
+ * - The *Async variants queue that unit of work on the group's
+ * GroupWriteQueue mailbox, so a group's expenses never wait on each other's
+ * row locks
  */
 public class ExpenseService {
 
     private ExpenseDAO expenseDAO;
     private ExpenseParticipantDAO participantDAO;
     private SettlementDAO settlementDAO;
+    private SettlementWriter settlementWriter;
     private GroupMemberDAO memberDAO;
+    private GroupWriteQueue writeQueue;
 
     public ExpenseService() {
-        this.expenseDAO = new ExpenseDAOImpl();
+        this.expenseDAO = DAOFactory.expenseDAO();
         this.participantDAO = new ExpenseParticipantDAOImpl();
         this.settlementDAO = new SettlementDAOImpl();
-        this.memberDAO = new GroupMemberDAOImpl();
+        this.settlementWriter = new SettlementWriter(settlementDAO);
+        this.memberDAO = DAOFactory.groupMemberDAO();
+        this.writeQueue = GroupWriteQueue.getInstance();
     }
 
     /**
@@ -61,30 +79,36 @@ public class ExpenseService {
      */
     public Expense addExpenseEqualSplit(int groupId, String paidBy, BigDecimal amount,
             String description, List<String> participantIds) {
-        // Create expense
-        Expense expense = new Expense(groupId, paidBy, amount, description,
-                Expense.SplitType.EQUAL);
-        int expenseId = expenseDAO.insert(expense);
-        expense.setExpenseId(expenseId);
-
-        // Calculate equal share
-        int numParticipants = participantIds.size();
-        BigDecimal share = amount.divide(BigDecimal.valueOf(numParticipants),
-                2, RoundingMode.HALF_UP);
-
-        // Create participant records and settlements
-        for (String userId : participantIds) {
-            // Create participant record
-            ExpenseParticipant participant = new ExpenseParticipant(expenseId, userId, share);
-            participantDAO.insert(participant);
-
-            // Create/update settlement (if not the payer)
-            if (!userId.equals(paidBy)) {
-                updateOrCreateSettlement(groupId, userId, paidBy, share);
+        return TransactionRetry.inTransaction(() -> {
+            // Create expense
+            Expense expense = new Expense(groupId, paidBy, amount, description,
+                    Expense.SplitType.EQUAL);
+            int expenseId = expenseDAO.insert(expense);
+            expense.setExpenseId(expenseId);
+            DataVersions.changed(DataVersions.Kind.EXPENSES, groupId);
+
+            // Calculate equal shares in cents; the first participants take the
+            // leftover cents so the shares add up to the amount exactly
+            Money[] shares = Money.of(amount).split(participantIds.size());
+
+            // Create participant records in one batch
+            List<ExpenseParticipant> participants = new ArrayList<>();
+            List<SettlementDelta> deltas = new ArrayList<>();
+            for (int i = 0; i < shares.length; i++) {
+                String userId = participantIds.get(i);
+                BigDecimal share = shares[i].toBigDecimal();
+                participants.add(new ExpenseParticipant(expenseId, userId, share));
+
+                // Create/update settlements (if not the payer)
+                if (!userId.equals(paidBy)) {
+                    deltas.add(new SettlementDelta(userId, paidBy, share));
+                }
             }
-        }
+            participantDAO.insertAll(participants);
+            updateOrCreateSettlements(groupId, deltas);
 
-        return expense;
+            return expense;
+        });
     }
 
     /**
@@ -92,48 +116,62 @@ public class ExpenseService {
      */
     public Expense addExpenseCustomSplit(int groupId, String paidBy, BigDecimal amount,
             String description, Map<String, BigDecimal> shares) {
-        // Create expense
-        Expense expense = new Expense(groupId, paidBy, amount, description,
-                Expense.SplitType.CUSTOM);
-        int expenseId = expenseDAO.insert(expense);
-        expense.setExpenseId(expenseId);
-
-        // Create participant records and settlements
-        for (Map.Entry<String, BigDecimal> entry : shares.entrySet()) {
-            String userId = entry.getKey();
-            BigDecimal share = entry.getValue();
-
-            // Create participant record
-            ExpenseParticipant participant = new ExpenseParticipant(expenseId, userId, share);
-            participantDAO.insert(participant);
-
-            // Create/update settlement (if not the payer)
-            if (!userId.equals(paidBy)) {
-                updateOrCreateSettlement(groupId, userId, paidBy, share);
+        return TransactionRetry.inTransaction(() -> {
+            // Create expense
+            Expense expense = new Expense(groupId, paidBy, amount, description,
+                    Expense.SplitType.CUSTOM);
+            int expenseId = expenseDAO.insert(expense);
+            expense.setExpenseId(expenseId);
+            DataVersions.changed(DataVersions.Kind.EXPENSES, groupId);
+
+            // Create participant records in one batch
+            List<ExpenseParticipant> participants = new ArrayList<>();
+            for (Map.Entry<String, BigDecimal> entry : shares.entrySet()) {
+                participants.add(new ExpenseParticipant(expenseId, entry.getKey(), entry.getValue()));
             }
-        }
+            participantDAO.insertAll(participants);
+
+            // Create/update settlements (if not the payer)
+            List<SettlementDelta> deltas = new ArrayList<>();
+            for (Map.Entry<String, BigDecimal> entry : shares.entrySet()) {
+                String userId = entry.getKey();
+                if (!userId.equals(paidBy)) {
+                    deltas.add(new SettlementDelta(userId, paidBy, entry.getValue()));
+                }
+            }
+            updateOrCreateSettlements(groupId, deltas);
 
-        return expense;
+            return expense;
+        });
     }
 
     /**
-     * Helper method to create or update settlement
+     * addExpenseEqualSplit() on the group's write queue
      */
-    private void updateOrCreateSettlement(int groupId, String fromUser, String toUser,
-            BigDecimal amount) {
-        Settlement existing = settlementDAO.findByUsers(groupId, fromUser, toUser);
-
-        if (existing != null) {
-            // Update existing settlement
-            BigDecimal newBalance = existing.getNetBalance().add(amount);
-            existing.setNetBalance(newBalance);
-            existing.setStatus(Settlement.SettlementStatus.PENDING);
-            settlementDAO.update(existing);
-        } else {
-            // Create new settlement
-            Settlement settlement = new Settlement(groupId, fromUser, toUser, amount);
-            settlementDAO.insert(settlement);
-        }
+    public CompletableFuture<Expense> addExpenseEqualSplitAsync(int groupId, String paidBy,
+            BigDecimal amount, String description, List<String> participantIds) {
+        return writeQueue.submit(groupId,
+                () -> addExpenseEqualSplit(groupId, paidBy, amount, description, participantIds));
+    }
+
+    /**
+     * addExpenseCustomSplit() on the group's write queue
+     */
+    public CompletableFuture<Expense> addExpenseCustomSplitAsync(int groupId, String paidBy,
+            BigDecimal amount, String description, Map<String, BigDecimal> shares) {
+        return writeQueue.submit(groupId,
+                () -> addExpenseCustomSplit(groupId, paidBy, amount, description, shares));
+    }
+
+    /**
+     * Helper method to create or update settlements
+     * Each delta adds a participant's share to what they owe the payer; all
+     * pairs are upserted in a single statement. The ledger applies the same
+     * deltas in memory once the transaction commits. In compaction mode a
+     * share is netted against the reverse row (see SettlementWriter).
+     */
+    private void updateOrCreateSettlements(int groupId, List<SettlementDelta> deltas) {
+        settlementWriter.apply(groupId, deltas);
     }
 
     /**
@@ -143,6 +181,28 @@ public class ExpenseService {
         return expenseDAO.findByGroup(groupId);
     }
 
+    /**
+     * Get one page of a group's expenses, newest first
+     *
+     * @param cursor nextCursor from the previous page, or null for the first
+     * @param limit  page size (clamped to PageCursor.MAX_LIMIT)
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public Page<Expense> getExpensesByGroupPage(int groupId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = PageCursor.clampLimit(limit);
+
+        // Ask for one extra row to know whether another page exists
+        List<Expense> rows = expenseDAO.findByGroupPage(groupId, after, size + 1);
+        String next = null;
+        if (rows.size() > size) {
+            rows = new ArrayList<>(rows.subList(0, size));
+            Expense last = rows.get(size - 1);
+            next = new PageCursor(last.getCreatedAt(), last.getExpenseId()).encode();
+        }
+        return new Page<>(rows, next);
+    }
+
     /**
      * Get expense by ID
      */
@@ -157,6 +217,15 @@ public class ExpenseService {
         return participantDAO.findByExpense(expenseId);
     }
 
+    /**
+     * Get participants for many expenses with one batched query
+     * 
+     * @return Participants keyed by expense ID (empty list if none)
+     */
+    public Map<Integer, List<ExpenseParticipant>> getParticipants(Collection<Integer> expenseIds) {
+        return participantDAO.findByExpenses(expenseIds);
+    }
+
     /**
      * Calculate shares for equal split
      * 
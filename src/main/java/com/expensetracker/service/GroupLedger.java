@@ -0,0 +1,714 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.SettlementDAO;
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.model.Money;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementChecksum;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.DatabaseConfig;
+import com.expensetracker.util.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GroupLedger - In-memory copy of the settlements table per group
+ *
+ * RESPONSIBILITIES:
+ * - Keep every pairwise balance (from_user -> to_user) and every member's net
+ * balance of recently used groups in memory, as long cents
+ * - Serve SettlementService's balance reads without touching the database
+ * - Apply expense/payment deltas incrementally once their transaction commits
+ *
+ * LIFECYCLE:
+ * - A group is loaded from the database on first read and verified against a
+ * COUNT/SUM/MAX checksum of its rows
+ * - Beyond ledger.maxGroups the least recently used groups are evicted,
+ * approximately: a read only stamps the group with a coarse clock, and one
+ * pass drops the least recently stamped tenth (see evictIfFull())
+ * - On shutdown the cached groups are written to ledger.snapshotFile; after a
+ * restart a group is taken from the snapshot if its checksum still matches,
+ * instead of reading all its rows again
+ *
+ * CONSISTENCY:
+ * - Writers call recordDeltas() inside their transaction, next to
+ * SettlementDAO.applyDeltas(); the deltas are applied with the same status
+ * rules as the SQL upsert, after commit only
+ * - A group loaded while a write to it may be in flight is served once but not
+ * cached, so a write is never missed or applied twice (write counters are
+ * striped by group id)
+ * - Reads take no global lock: the cache is a ConcurrentHashMap and each
+ * group's rows have their own lock
+ * - Only this process's writes are seen: set ledger.enabled=false when several
+ * app instances share one database
+ *
+ * SETTINGS (db.properties or environment):
+ * - ledger.enabled (default true)
+ * - ledger.maxGroups (default 1000)
+ * - ledger.snapshotFile (default data/ledger.snapshot; empty = no snapshot)
+ */
+public class GroupLedger {
+
+    private static final int STRIPES = 64;
+    private static final int SNAPSHOT_MAGIC = 0x4C454447; // "LEDG"
+    private static final int SNAPSHOT_VERSION = 2;
+
+    // Singleton instance
+    private static GroupLedger instance;
+
+    private final SettlementDAO settlementDAO;
+    private final boolean enabled;
+    private final File snapshotFile;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int maxGroups;
+
+    // Cached groups, each stamped with its last read
+    private final ConcurrentHashMap<Integer, Cached> groups = new ConcurrentHashMap<>();
+
+    // Groups read from the snapshot, not yet verified
+    private final Map<Integer, GroupState> restored;
+
+    // Set while one thread runs evictIfFull()
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong uncached = new AtomicLong();
+
+    GroupLedger(SettlementDAO settlementDAO, boolean enabled, int maxGroups, File snapshotFile) {
+        this.settlementDAO = settlementDAO;
+        this.enabled = enabled;
+        this.snapshotFile = snapshotFile;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxGroups = maxGroups;
+        this.restored = new ConcurrentHashMap<>(enabled ? readSnapshot() : new HashMap<>());
+    }
+
+    public static synchronized GroupLedger getInstance() {
+        if (instance == null) {
+            String file = DatabaseConfig.getSetting("ledger.snapshotFile",
+                    "EXPENSE_TRACKER_LEDGER_SNAPSHOT_FILE", "data/ledger.snapshot");
+            instance = new GroupLedger(new SettlementDAOImpl(),
+                    Boolean.parseBoolean(DatabaseConfig.getSetting("ledger.enabled",
+                            "EXPENSE_TRACKER_LEDGER_ENABLED", "true")),
+                    (int) Math.max(1, DatabaseConfig.getLongSetting("ledger.maxGroups",
+                            "EXPENSE_TRACKER_LEDGER_MAX_GROUPS", 1000)),
+                    file.isEmpty() ? null : new File(file));
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== WRITES ====================
+
+    /**
+     * Record settlement deltas written by the current transaction. Call it
+     * inside TransactionTemplate.inTransaction(), next to
+     * SettlementDAO.applyDeltas(); the deltas reach the cached group only if
+     * the transaction commits.
+     */
+    public void recordDeltas(int groupId, List<SettlementDelta> deltas) {
+        recordDeltas(groupId, Collections.emptyList(), deltas);
+    }
+
+    /**
+     * Same as recordDeltas(groupId, deltas), for a change that also deleted
+     * rows (pair compaction): the rows of removedPairs (from/to of each
+     * entry) are dropped first, then the deltas are applied.
+     */
+    public void recordDeltas(int groupId, List<SettlementDelta> removedPairs, List<SettlementDelta> deltas) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionTemplate.isActive()) {
+            throw new IllegalStateException("GroupLedger.recordDeltas() must run inside a transaction");
+        }
+
+        List<SettlementDelta> removed = new ArrayList<>(removedPairs.size());
+        for (SettlementDelta pair : removedPairs) {
+            removed.add(new SettlementDelta(pair.getFromUser(), pair.getToUser(), BigDecimal.ZERO));
+        }
+        List<SettlementDelta> copy = new ArrayList<>(deltas.size());
+        for (SettlementDelta delta : deltas) {
+            copy.add(new SettlementDelta(delta.getFromUser(), delta.getToUser(), delta.getAmount()));
+        }
+
+        Stripe stripe = stripe(groupId);
+        synchronized (stripe) {
+            stripe.inFlight++;
+            stripe.started++;
+        }
+        TransactionTemplate.onCommit(() -> applyCommitted(groupId, removed, copy));
+        TransactionTemplate.onCompletion(() -> {
+            synchronized (stripe) {
+                stripe.inFlight--;
+            }
+        });
+    }
+
+    /**
+     * Forget a group after a change that did not go through recordDeltas()
+     * (e.g. the group was deleted). Call it after that change has committed.
+     */
+    public void invalidate(int groupId) {
+        Stripe stripe = stripe(groupId);
+        synchronized (stripe) {
+            // a load that started before the change must not be cached
+            stripe.started++;
+            groups.remove(groupId);
+            restored.remove(groupId);
+        }
+    }
+
+    private void applyCommitted(int groupId, List<SettlementDelta> removed, List<SettlementDelta> deltas) {
+        Stripe stripe = stripe(groupId);
+        synchronized (stripe) {
+            Cached cached = groups.get(groupId);
+            restored.remove(groupId);
+            if (cached != null) {
+                cached.state.remove(removed);
+                cached.state.apply(deltas);
+            }
+        }
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Net balance of every user with a settlements row in the group, ordered
+     * by user ID. Positive = is owed money, negative = owes money; SETTLED
+     * rows count as zero (same as SettlementDAO.netBalancesByGroup()).
+     *
+     * @return the balances, or null if the ledger is off or the group could
+     *         not be loaded (callers fall back to the DAO)
+     */
+    public Map<String, BigDecimal> netBalances(int groupId) {
+        GroupState state = state(groupId);
+        return state != null ? state.netBalances() : null;
+    }
+
+    /**
+     * Same as netBalances(), in cents.
+     *
+     * @return the balances, or null if the ledger is off or the group could
+     *         not be loaded
+     */
+    public Map<String, Long> netCents(int groupId) {
+        GroupState state = state(groupId);
+        return state != null ? state.netCents() : null;
+    }
+
+    /**
+     * PENDING and PARTIAL rows of the group (same as
+     * SettlementDAO.findPendingByGroup(); id and lastUpdated are not kept).
+     *
+     * @return the rows, or null if the ledger is off or the group could not
+     *         be loaded (callers fall back to the DAO)
+     */
+    public List<Settlement> pendingSettlements(int groupId) {
+        GroupState state = state(groupId);
+        return state != null ? state.pending(groupId) : null;
+    }
+
+    private GroupState state(int groupId) {
+        if (!enabled) {
+            return null;
+        }
+        Cached cached = groups.get(groupId);
+        if (cached != null) {
+            cached.touch();
+            hits.increment();
+            return cached.state;
+        }
+
+        Stripe stripe = stripe(groupId);
+        long startedBefore;
+        boolean quiet;
+        synchronized (stripe) {
+            startedBefore = stripe.started;
+            quiet = stripe.inFlight == 0;
+        }
+        // Inside a transaction the read may see uncommitted or old rows
+        boolean cacheable = quiet && !TransactionTemplate.isActive();
+
+        GroupState loaded = load(groupId);
+        if (loaded == null) {
+            return null;
+        }
+
+        if (cacheable) {
+            Cached existing = null;
+            boolean stored = false;
+            synchronized (stripe) {
+                if (stripe.inFlight == 0 && stripe.started == startedBefore) {
+                    existing = groups.putIfAbsent(groupId, new Cached(loaded));
+                    stored = true;
+                }
+            }
+            if (existing != null) {
+                return existing.state;
+            }
+            if (stored) {
+                evictIfFull();
+                return loaded;
+            }
+        }
+        uncached.incrementAndGet();
+        return loaded;
+    }
+
+    /**
+     * Approximate LRU eviction. Once the cache is over maxGroups, one thread
+     * (others skip it) drops the least recently read tenth of the groups in
+     * a single scan, so the scan is paid once per maxGroups/10 loads instead
+     * of reads keeping an exact order under a lock.
+     */
+    private void evictIfFull() {
+        if (groups.size() <= maxGroups || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = groups.size() - maxGroups;
+            if (excess <= 0) {
+                return;
+            }
+            int toEvict = Math.max(excess, maxGroups / 10);
+
+            List<Map.Entry<Integer, Cached>> entries = new ArrayList<>(groups.entrySet());
+            long[] stamps = new long[entries.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = entries.get(i).getValue().lastUsed;
+            }
+            Arrays.sort(stamps);
+            long cutoff = stamps[Math.min(toEvict, stamps.length) - 1];
+
+            for (Map.Entry<Integer, Cached> entry : entries) {
+                if (toEvict == 0) {
+                    break;
+                }
+                // A group read or reloaded since the scan stays
+                if (entry.getValue().lastUsed <= cutoff && groups.remove(entry.getKey(), entry.getValue())) {
+                    evictions.incrementAndGet();
+                    toEvict--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Read a group from the snapshot (if its checksum still matches) or from
+     * the database. Returns null if the rows could not be read consistently.
+     */
+    private GroupState load(int groupId) {
+        SettlementChecksum checksum = settlementDAO.checksumsByGroup(
+                Collections.singleton(groupId)).get(groupId);
+        if (checksum == null) {
+            return null;
+        }
+
+        GroupState fromSnapshot = restored.remove(groupId);
+        if (fromSnapshot != null && checksum.equals(fromSnapshot.checksum)) {
+            restores.incrementAndGet();
+            return fromSnapshot;
+        }
+
+        // The DAO returns an empty list on errors, so the rows are checked
+        // against the checksum; a mismatch (error or concurrent write) means
+        // this copy cannot be trusted
+        List<Settlement> rows = settlementDAO.findByGroup(groupId);
+        GroupState state = new GroupState();
+        long total = 0;
+        for (Settlement s : rows) {
+            long cents = Money.of(s.getNetBalance()).getCents();
+            state.putRow(s.getFromUser(), s.getToUser(), cents, s.getStatus());
+            total += cents;
+        }
+        if (rows.size() != checksum.getRowCount() || total != Money.of(checksum.getTotalBalance()).getCents()) {
+            return null;
+        }
+        loads.incrementAndGet();
+        return state;
+    }
+
+    // ==================== SNAPSHOT ====================
+
+    /**
+     * Write the cached groups to the snapshot file (on shutdown). Groups with
+     * a write in flight are skipped; they are simply loaded from the database
+     * after the restart.
+     */
+    public void saveSnapshot() {
+        if (!enabled || snapshotFile == null) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>(groups.keySet());
+        Map<Integer, Long> startedBefore = new HashMap<>();
+        for (Integer id : ids) {
+            Stripe stripe = stripe(id);
+            synchronized (stripe) {
+                if (stripe.inFlight == 0) {
+                    startedBefore.put(id, stripe.started);
+                }
+            }
+        }
+        Map<Integer, SettlementChecksum> checksums = settlementDAO.checksumsByGroup(startedBefore.keySet());
+
+        File dir = snapshotFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            System.err.println("Could not create " + dir + " for the ledger snapshot");
+            return;
+        }
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            for (Map.Entry<Integer, Long> entry : startedBefore.entrySet()) {
+                int id = entry.getKey();
+                SettlementChecksum checksum = checksums.get(id);
+                if (checksum == null) {
+                    continue;
+                }
+                Stripe stripe = stripe(id);
+                synchronized (stripe) {
+                    // a write since the checksum query would make it stale
+                    if (stripe.inFlight != 0 || stripe.started != entry.getValue()) {
+                        continue;
+                    }
+                    Cached cached = groups.get(id);
+                    if (cached == null) {
+                        continue;
+                    }
+                    out.writeBoolean(true);
+                    out.writeInt(id);
+                    writeChecksum(out, checksum);
+                    cached.state.writeRows(out);
+                    written++;
+                }
+            }
+            out.writeBoolean(false);
+        } catch (IOException e) {
+            System.err.println("Could not write ledger snapshot: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+
+        try {
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Ledger snapshot saved: " + written + " groups");
+        } catch (IOException e) {
+            System.err.println("Could not write ledger snapshot: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private Map<Integer, GroupState> readSnapshot() {
+        Map<Integer, GroupState> result = new HashMap<>();
+        if (snapshotFile == null || !snapshotFile.exists()) {
+            return result;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                System.err.println("Ignoring unrecognized ledger snapshot " + snapshotFile);
+                return result;
+            }
+            while (in.readBoolean()) {
+                int id = in.readInt();
+                GroupState state = new GroupState();
+                state.checksum = readChecksum(in);
+                state.readRows(in);
+                result.put(id, state);
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable ledger snapshot: " + e.getMessage());
+            result.clear();
+        }
+        // Stale as soon as anything is written; a new one is saved on shutdown
+        snapshotFile.delete();
+        return result;
+    }
+
+    private static void writeChecksum(DataOutputStream out, SettlementChecksum checksum) throws IOException {
+        out.writeInt(checksum.getRowCount());
+        out.writeUTF(checksum.getTotalBalance().toPlainString());
+        Timestamp lastUpdated = checksum.getLastUpdated();
+        out.writeBoolean(lastUpdated != null);
+        if (lastUpdated != null) {
+            out.writeLong(lastUpdated.getTime());
+            out.writeInt(lastUpdated.getNanos());
+        }
+        out.writeLong(checksum.getVersionTotal());
+        out.writeInt(checksum.getSettledCount());
+    }
+
+    private static SettlementChecksum readChecksum(DataInputStream in) throws IOException {
+        int rowCount = in.readInt();
+        BigDecimal total = new BigDecimal(in.readUTF());
+        Timestamp lastUpdated = null;
+        if (in.readBoolean()) {
+            lastUpdated = new Timestamp(in.readLong());
+            lastUpdated.setNanos(in.readInt());
+        }
+        long versionTotal = in.readLong();
+        int settledCount = in.readInt();
+        return new SettlementChecksum(rowCount, total, lastUpdated, versionTotal, settledCount);
+    }
+
+    // ==================== HELPERS ====================
+
+    private Stripe stripe(int groupId) {
+        return stripes[Math.floorMod(groupId, STRIPES)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public int getCachedGroups() {
+        return groups.size();
+    }
+
+    @Override
+    public String toString() {
+        return "GroupLedger{enabled=" + enabled + ", groups=" + getCachedGroups()
+                + ", hits=" + hits.sum() + ", loads=" + loads.get()
+                + ", restores=" + restores.get() + ", uncached=" + uncached.get()
+                + ", evictions=" + evictions.get() + "}";
+    }
+
+    /**
+     * Write counters for the groups hashed to one stripe; guarded by itself.
+     */
+    private static class Stripe {
+        int inFlight;
+        long started;
+    }
+
+    /**
+     * A cached group and when it was last read.
+     */
+    private static final class Cached {
+        final GroupState state;
+        volatile long lastUsed;
+
+        Cached(GroupState state) {
+            this.state = state;
+            touch();
+        }
+
+        void touch() {
+            // ~1 ms ticks; a hot group's stamp is only written once per tick
+            long now = System.nanoTime() >> 20;
+            if (lastUsed != now) {
+                lastUsed = now;
+            }
+        }
+    }
+
+    /**
+     * One settlements row.
+     */
+    private static class Row {
+        final String fromUser;
+        final String toUser;
+        long cents;
+        Settlement.SettlementStatus status;
+
+        Row(String fromUser, String toUser, long cents, Settlement.SettlementStatus status) {
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+            this.cents = cents;
+            this.status = status;
+        }
+
+        // What the row adds to toUser's (and takes from fromUser's) net balance
+        long outstanding() {
+            return status != Settlement.SettlementStatus.SETTLED ? cents : 0;
+        }
+    }
+
+    /**
+     * Rows and per-member nets of one group; guarded by itself.
+     */
+    private static class GroupState {
+        private final Map<String, Row> rows = new HashMap<>();
+        private final Map<String, long[]> nets = new HashMap<>();
+
+        // Only set for groups read from a snapshot
+        SettlementChecksum checksum;
+
+        synchronized void putRow(String fromUser, String toUser,
+                long cents, Settlement.SettlementStatus status) {
+            Row row = new Row(fromUser, toUser, cents, status);
+            rows.put(key(fromUser, toUser), row);
+            adjustNets(row, row.outstanding());
+        }
+
+        /**
+         * Same rules as SettlementDAOImpl.applyDeltas(): deltas per pair are
+         * summed, then a new row is PENDING (or SETTLED if not positive) and
+         * an existing one becomes SETTLED at or below zero, PARTIAL after a
+         * payment, PENDING after a new share. If any pair was paid, negative
+         * rows are then raised to zero and owed the other way.
+         */
+        synchronized void apply(List<SettlementDelta> deltas) {
+            Map<String, long[]> merged = new TreeMap<>();
+            Map<String, SettlementDelta> pairs = new HashMap<>();
+            for (SettlementDelta delta : deltas) {
+                String key = key(delta.getFromUser(), delta.getToUser());
+                merged.computeIfAbsent(key, k -> new long[1])[0] += Money.of(delta.getAmount()).getCents();
+                pairs.putIfAbsent(key, delta);
+            }
+            boolean paid = false;
+            for (long[] delta : merged.values()) {
+                paid |= delta[0] < 0;
+            }
+
+            for (Map.Entry<String, long[]> entry : merged.entrySet()) {
+                long delta = entry.getValue()[0];
+                Row row = rows.get(entry.getKey());
+                if (row == null) {
+                    SettlementDelta pair = pairs.get(entry.getKey());
+                    putRow(pair.getFromUser(), pair.getToUser(), delta,
+                            delta > 0 ? Settlement.SettlementStatus.PENDING
+                                    : Settlement.SettlementStatus.SETTLED);
+                    continue;
+                }
+                long before = row.outstanding();
+                if (row.cents + delta <= 0) {
+                    row.status = Settlement.SettlementStatus.SETTLED;
+                } else if (delta < 0) {
+                    row.status = Settlement.SettlementStatus.PARTIAL;
+                } else {
+                    row.status = Settlement.SettlementStatus.PENDING;
+                }
+                row.cents += delta;
+                adjustNets(row, row.outstanding() - before);
+            }
+
+            if (paid) {
+                List<SettlementDelta> flips = new ArrayList<>();
+                for (Row row : rows.values()) {
+                    if (row.cents < 0) {
+                        BigDecimal excess = Money.ofCents(-row.cents).toBigDecimal();
+                        flips.add(new SettlementDelta(row.fromUser, row.toUser, excess));
+                        flips.add(new SettlementDelta(row.toUser, row.fromUser, excess));
+                    }
+                }
+                if (!flips.isEmpty()) {
+                    apply(flips);
+                }
+            }
+        }
+
+        synchronized void remove(List<SettlementDelta> pairs) {
+            for (SettlementDelta pair : pairs) {
+                Row row = rows.remove(key(pair.getFromUser(), pair.getToUser()));
+                if (row != null) {
+                    adjustNets(row, -row.outstanding());
+                }
+            }
+        }
+
+        synchronized Map<String, BigDecimal> netBalances() {
+            Map<String, BigDecimal> result = new TreeMap<>();
+            for (Map.Entry<String, long[]> entry : nets.entrySet()) {
+                result.put(entry.getKey(), Money.ofCents(entry.getValue()[0]).toBigDecimal());
+            }
+            return result;
+        }
+
+        synchronized Map<String, Long> netCents() {
+            Map<String, Long> result = new HashMap<>(nets.size() * 2);
+            for (Map.Entry<String, long[]> entry : nets.entrySet()) {
+                result.put(entry.getKey(), entry.getValue()[0]);
+            }
+            return result;
+        }
+
+        synchronized List<Settlement> pending(int groupId) {
+            List<Settlement> result = new ArrayList<>();
+            for (Row row : rows.values()) {
+                if (row.status != Settlement.SettlementStatus.SETTLED) {
+                    Settlement s = new Settlement(groupId, row.fromUser, row.toUser,
+                            Money.ofCents(row.cents).toBigDecimal());
+                    s.setStatus(row.status);
+                    result.add(s);
+                }
+            }
+            return result;
+        }
+
+        synchronized void writeRows(DataOutputStream out) throws IOException {
+            out.writeInt(rows.size());
+            for (Row row : rows.values()) {
+                out.writeUTF(row.fromUser);
+                out.writeUTF(row.toUser);
+                out.writeLong(row.cents);
+                out.writeByte(row.status.ordinal());
+            }
+        }
+
+        synchronized void readRows(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            Settlement.SettlementStatus[] statuses = Settlement.SettlementStatus.values();
+            for (int i = 0; i < count; i++) {
+                String fromUser = in.readUTF();
+                String toUser = in.readUTF();
+                long cents = in.readLong();
+                int status = in.readByte();
+                if (status < 0 || status >= statuses.length) {
+                    throw new IOException("bad status " + status);
+                }
+                putRow(fromUser, toUser, cents, statuses[status]);
+            }
+        }
+
+        private void adjustNets(Row row, long change) {
+            nets.computeIfAbsent(row.toUser, k -> new long[1])[0] += change;
+            nets.computeIfAbsent(row.fromUser, k -> new long[1])[0] -= change;
+        }
+
+        private static String key(String fromUser, String toUser) {
+            return fromUser + '\u0000' + toUser;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.expensetracker.service;
 
 import com.expensetracker.dao.*;
+import com.expensetracker.dao.cache.DAOFactory;
 import com.expensetracker.dao.impl.*;
 import com.expensetracker.model.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * GroupService - Business Logic for Group Operations
@@ -24,9 +28,9 @@ public class GroupService {
     private UserDAO userDAO;
 
     public GroupService() {
-        this.groupDAO = new GroupDAOImpl();
-        this.memberDAO = new GroupMemberDAOImpl();
-        this.userDAO = new UserDAOImpl();
+        this.groupDAO = DAOFactory.groupDAO();
+        this.memberDAO = DAOFactory.groupMemberDAO();
+        this.userDAO = DAOFactory.userDAO();
     }
 
     /**
@@ -47,6 +51,7 @@ public class GroupService {
         Group group = new Group(name, description, userId);
         int groupId = groupDAO.insert(group);
         group.setGroupId(groupId);
+        DataVersions.changed(DataVersions.Kind.GROUPS, groupId);
 
         // Automatically add creator as member
         addMember(groupId, userId);
@@ -71,7 +76,9 @@ public class GroupService {
 
         // Create new user
         User newUser = new User(phone, name, email);
-        return userDAO.insert(newUser);
+        String userId = userDAO.insert(newUser);
+        DataVersions.changed(DataVersions.Kind.USERS);
+        return userId;
     }
 
     /**
@@ -89,6 +96,7 @@ public class GroupService {
 
         GroupMember member = new GroupMember(groupId, userId);
         memberDAO.insert(member);
+        DataVersions.changed(DataVersions.Kind.GROUPS, groupId);
         return true;
     }
 
@@ -118,7 +126,11 @@ public class GroupService {
      * @return true if successful
      */
     public boolean removeMember(int groupId, String userId) {
-        return memberDAO.delete(groupId, userId);
+        boolean removed = memberDAO.delete(groupId, userId);
+        if (removed) {
+            DataVersions.changed(DataVersions.Kind.GROUPS, groupId);
+        }
+        return removed;
     }
 
     /**
@@ -140,8 +152,11 @@ public class GroupService {
      */
     public List<User> getGroupMembers(int groupId) {
         List<GroupMember> memberships = memberDAO.findByGroup(groupId);
+        Map<String, User> users = userDAO.findByPhones(memberships.stream()
+                .map(GroupMember::getUserId)
+                .collect(Collectors.toList()));
         return memberships.stream()
-                .map(gm -> userDAO.findByPhone(gm.getUserId()))
+                .map(gm -> users.get(gm.getUserId()))
                 .collect(Collectors.toList());
     }
 
@@ -152,6 +167,13 @@ public class GroupService {
         return groupDAO.findAll();
     }
 
+    /**
+     * Stream all groups; close the stream when done
+     */
+    public Stream<Group> streamAllGroups() {
+        return groupDAO.streamAll();
+    }
+
     /**
      * Get all users
      */
@@ -159,6 +181,13 @@ public class GroupService {
         return userDAO.findAll();
     }
 
+    /**
+     * Stream all users; close the stream when done
+     */
+    public Stream<User> streamAllUsers() {
+        return userDAO.streamAll();
+    }
+
     /**
      * Get user by ID
      */
@@ -166,6 +195,15 @@ public class GroupService {
         return userDAO.findByPhone(userId);
     }
 
+    /**
+     * Get many users by ID with one batched lookup
+     * 
+     * @return Map of user ID to User; unknown IDs are absent
+     */
+    public Map<String, User> getUsers(Collection<String> userIds) {
+        return userDAO.findByPhones(userIds);
+    }
+
     /**
      * Delete a group by ID.
      * Cascading deletes are handled by database foreign key constraints.
@@ -174,6 +212,16 @@ public class GroupService {
      * @return true if the group was deleted
      */
     public boolean deleteGroup(int groupId) {
-        return groupDAO.delete(groupId);
+        boolean deleted = groupDAO.delete(groupId);
+        if (deleted) {
+            // settlements and expenses went with the group (ON DELETE
+            // CASCADE); payments of those expenses lost their expense link
+            GroupLedger.getInstance().invalidate(groupId);
+            SettlementViewCache.getInstance().groupChanged(groupId);
+            DataVersions.changed(DataVersions.Kind.GROUPS, groupId);
+            DataVersions.changed(DataVersions.Kind.EXPENSES, groupId);
+            DataVersions.changed(DataVersions.Kind.PAYMENTS, groupId);
+        }
+        return deleted;
     }
 }
@@ -0,0 +1,287 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.util.DatabaseConfig;
+import com.expensetracker.util.TransactionRetry;
+import com.expensetracker.util.TransactionTemplate;
+import com.expensetracker.util.TransactionTemplate.TransactionCallback;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GroupWriteQueue - One writer at a time per group
+ *
+ * Expenses and payments of the same group all update that group's
+ * settlement rows; run concurrently they wait on each other's row locks (and
+ * deadlock on MySQL when they lock pairs in different orders). Here every
+ * group gets a mailbox, and a group's commands run one after another:
+ *
+ * - A worker takes up to writeQueue.maxBatch queued commands of one group
+ * and runs them in a single transaction; their settlement deltas are
+ * collected and written with one upsert at the end (SettlementWriter)
+ * - If the batch fails, its commands are rerun one transaction each
+ * (TransactionRetry), so one bad command only fails its own future
+ * - Different groups run in parallel on writeQueue.threads workers; a busy
+ * group gives up its worker after each batch
+ *
+ * Commands must not read settlement balances they have just changed (the
+ * deltas of a batch are written last); one that has to read them calls
+ * SettlementWriter.writeDeferred() first, as SettlementService.cancelCycles()
+ * does. Commands without a group (ID 0), callers already inside a
+ * transaction, and all callers when writeQueue.enabled=false run inline.
+ *
+ * SETTINGS (db.properties or environment):
+ * - writeQueue.enabled (default true)
+ * - writeQueue.threads (default: number of processors)
+ * - writeQueue.maxBatch (default 32)
+ */
+public class GroupWriteQueue {
+
+    // Singleton instance
+    private static GroupWriteQueue instance;
+
+    private final boolean enabled;
+    private final int maxBatch;
+    private final ExecutorService workers;
+    private final SettlementWriter settlementWriter;
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    private GroupWriteQueue(boolean enabled, int threads, int maxBatch) {
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.settlementWriter = new SettlementWriter(new SettlementDAOImpl());
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "group-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized GroupWriteQueue getInstance() {
+        if (instance == null) {
+            instance = new GroupWriteQueue(
+                    Boolean.parseBoolean(DatabaseConfig.getSetting("writeQueue.enabled",
+                            "EXPENSE_TRACKER_WRITE_QUEUE_ENABLED", "true")),
+                    (int) Math.max(1, DatabaseConfig.getLongSetting("writeQueue.threads",
+                            "EXPENSE_TRACKER_WRITE_QUEUE_THREADS", Runtime.getRuntime().availableProcessors())),
+                    (int) Math.max(1, DatabaseConfig.getLongSetting("writeQueue.maxBatch",
+                            "EXPENSE_TRACKER_WRITE_QUEUE_MAX_BATCH", 32)));
+        }
+        return instance;
+    }
+
+    /**
+     * Finish queued commands and stop the workers (application shutdown).
+     */
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        instance.workers.shutdown();
+        try {
+            if (!instance.workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Group write queue: commands still queued at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        instance = null;
+    }
+
+    /**
+     * Queue a change to a group's data. work runs in a transaction on the
+     * group's worker (possibly together with other commands of the group).
+     *
+     * @return the work's result, or its exception
+     */
+    public <T> CompletableFuture<T> submit(int groupId, TransactionCallback<T> work) {
+        Command<T> command = new Command<>(work);
+        commands.incrementAndGet();
+        if (!enabled || groupId <= 0 || TransactionTemplate.isActive()) {
+            runAlone(command);
+            return command.future;
+        }
+
+        while (true) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(groupId, Mailbox::new);
+            synchronized (mailbox) {
+                if (mailbox.retired) {
+                    continue; // emptied and removed meanwhile; take the new one
+                }
+                mailbox.queue.add(command);
+                if (!mailbox.scheduled) {
+                    mailbox.scheduled = true;
+                    schedule(mailbox);
+                }
+            }
+            return command.future;
+        }
+    }
+
+    /**
+     * Wait for a submitted command; its exception is rethrown as is.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void schedule(Mailbox mailbox) {
+        try {
+            workers.execute(() -> drain(mailbox));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: run what is left on the caller's thread
+            drain(mailbox);
+        }
+    }
+
+    /**
+     * Run one batch of a mailbox, then reschedule it if more is queued.
+     */
+    private void drain(Mailbox mailbox) {
+        List<Command<?>> batch = new ArrayList<>();
+        synchronized (mailbox) {
+            while (batch.size() < maxBatch && !mailbox.queue.isEmpty()) {
+                batch.add(mailbox.queue.poll());
+            }
+        }
+
+        try {
+            runBatch(batch);
+        } finally {
+            boolean more;
+            synchronized (mailbox) {
+                more = !mailbox.queue.isEmpty();
+                if (!more) {
+                    mailbox.scheduled = false;
+                    mailbox.retired = true;
+                    mailboxes.remove(mailbox.groupId, mailbox);
+                }
+            }
+            if (more) {
+                schedule(mailbox);
+            }
+        }
+    }
+
+    private void runBatch(List<Command<?>> batch) {
+        if (batch.size() == 1) {
+            runAlone(batch.get(0));
+            return;
+        }
+        batches.incrementAndGet();
+
+        Object[] results = new Object[batch.size()];
+        try {
+            TransactionTemplate.inTransaction(() -> {
+                SettlementWriter.deferUntilFlush();
+                try {
+                    for (int i = 0; i < batch.size(); i++) {
+                        results[i] = batch.get(i).work.doInTransaction();
+                    }
+                    settlementWriter.flush();
+                } finally {
+                    SettlementWriter.discardDeferred();
+                }
+                return null;
+            });
+        } catch (RuntimeException | Error e) {
+            // Nothing of the batch was committed; find the failing command
+            retried.addAndGet(batch.size());
+            for (Command<?> command : batch) {
+                runAlone(command);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results[i]);
+        }
+    }
+
+    private static <T> void runAlone(Command<T> command) {
+        try {
+            command.future.complete(TransactionRetry.inTransaction(command.work));
+        } catch (RuntimeException | Error e) {
+            command.future.completeExceptionally(e);
+        }
+    }
+
+    // ==================== STATS ====================
+
+    public long getCommands() {
+        return commands.get();
+    }
+
+    /** Transactions that ran more than one command */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /** Commands rerun alone after their batch failed */
+    public long getRetried() {
+        return retried.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GroupWriteQueue{enabled=" + enabled + ", commands=" + commands + ", batches=" + batches
+                + ", retried=" + retried + ", activeGroups=" + mailboxes.size() + "}";
+    }
+
+    /**
+     * A queued change and the future its caller waits on.
+     */
+    private static class Command<T> {
+        final TransactionCallback<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Command(TransactionCallback<T> work) {
+            this.work = work;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+
+    /**
+     * Commands waiting for one group. Guarded by itself; removed from
+     * mailboxes (retired) once empty, so idle groups cost nothing.
+     */
+    private static class Mailbox {
+        final int groupId;
+        final ArrayDeque<Command<?>> queue = new ArrayDeque<>();
+        boolean scheduled;
+        boolean retired;
+
+        Mailbox(int groupId) {
+            this.groupId = groupId;
+        }
+    }
+}
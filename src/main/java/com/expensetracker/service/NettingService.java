@@ -0,0 +1,229 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.*;
+import com.expensetracker.dao.cache.DAOFactory;
+import com.expensetracker.dao.impl.*;
+import com.expensetracker.model.*;
+import com.expensetracker.util.TransactionRetry;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * NettingService - Cross-group netting of balances between two users
+ *
+ * RESPONSIBILITIES:
+ * - Combine a pair's pending settlements from every group they share into
+ * one net amount (A owes B 500 in one group, B owes A 300 in another:
+ * A owes B 200)
+ * - Record one payment against that net amount and spread it back over the
+ * per-group settlement rows
+ *
+ * ALLOCATION (recordNetPayment, fromUser pays toUser):
+ * - Rows where toUser owes fromUser are cleared; they offset fromUser's debt
+ * - The payment plus that offset is taken off the rows where fromUser owes
+ * toUser, in group order
+ * - All rows change in one multi-row upsert inside one transaction, with a
+ * single transactions record for the payment
+ *
+ * LAYER: Business Logic Layer
+ * DEPENDENCIES: SettlementDAO, TransactionDAO, UserDAO, SettlementWriter
+ */
+public class NettingService {
+
+    private SettlementDAO settlementDAO;
+    private SettlementWriter settlementWriter;
+    private TransactionDAO transactionDAO;
+    private UserDAO userDAO;
+
+    public NettingService() {
+        this.settlementDAO = new SettlementDAOImpl();
+        this.settlementWriter = new SettlementWriter(settlementDAO);
+        this.transactionDAO = new TransactionDAOImpl();
+        this.userDAO = DAOFactory.userDAO();
+    }
+
+    /**
+     * Data class for one user pair's net balance across groups
+     */
+    public static class PairNet {
+        public String fromUserId;
+        public String fromUserName;
+        public String toUserId;
+        public String toUserName;
+        public BigDecimal amount; // What fromUser owes toUser overall
+        public int groupCount; // Groups with a pending row between them
+        public int rowCount; // Pending rows folded into this amount
+
+        public PairNet(String fromUserId, String fromUserName, String toUserId, String toUserName,
+                BigDecimal amount, int groupCount, int rowCount) {
+            this.fromUserId = fromUserId;
+            this.fromUserName = fromUserName;
+            this.toUserId = toUserId;
+            this.toUserName = toUserName;
+            this.amount = amount;
+            this.groupCount = groupCount;
+            this.rowCount = rowCount;
+        }
+    }
+
+    /**
+     * Netting job: one net amount per user pair over all pending settlements
+     * (pairs that cancel out exactly are left out). Sorted by amount
+     * descending.
+     */
+    public List<PairNet> computeNets() {
+        return toPairNets(settlementDAO.findPending());
+    }
+
+    /**
+     * Net amounts between one user and everyone they share a pending
+     * settlement with
+     */
+    public List<PairNet> getNetsForUser(String userId) {
+        List<Settlement> rows = new ArrayList<>();
+        for (Settlement s : settlementDAO.findByDebtor(userId)) {
+            if (s.getStatus() != Settlement.SettlementStatus.SETTLED) {
+                rows.add(s);
+            }
+        }
+        for (Settlement s : settlementDAO.findByCreditor(userId)) {
+            if (s.getStatus() != Settlement.SettlementStatus.SETTLED) {
+                rows.add(s);
+            }
+        }
+        return toPairNets(rows);
+    }
+
+    /**
+     * Record one payment against the net amount fromUser owes toUser across
+     * all shared groups
+     *
+     * @param fromUser User making payment
+     * @param toUser   User receiving payment
+     * @param amount   Payment amount, at most the current net amount
+     * @param note     Optional note
+     * @return Created transaction
+     * @throws IllegalArgumentException if fromUser does not owe toUser overall
+     *                                  or the amount is larger than the net
+     */
+    public Transaction recordNetPayment(String fromUser, String toUser, BigDecimal amount, String note) {
+        if (fromUser.equals(toUser)) {
+            throw new IllegalArgumentException("Cannot make payment to yourself");
+        }
+        Money paid = Money.of(amount);
+        if (!paid.isPositive()) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        return TransactionRetry.inTransaction(() -> {
+            // Locks the pair's pending rows until commit
+            List<Settlement> rows = settlementDAO.findPendingBetween(fromUser, toUser);
+            List<Money> balances = new ArrayList<>(rows.size());
+
+            Money owed = Money.ZERO;
+            Money credit = Money.ZERO;
+            for (Settlement s : rows) {
+                Money balance = Money.of(s.getNetBalance());
+                balances.add(balance);
+                if (s.getFromUser().equals(fromUser)) {
+                    owed = owed.plus(balance);
+                } else {
+                    credit = credit.plus(balance);
+                }
+            }
+            Money net = owed.minus(credit);
+            if (!net.isPositive()) {
+                throw new IllegalArgumentException(fromUser + " does not owe " + toUser + " across groups");
+            }
+            if (paid.compareTo(net) > 0) {
+                throw new IllegalArgumentException("Payment exceeds net balance of " + net);
+            }
+
+            Map<Integer, List<SettlementDelta>> deltas = new TreeMap<>();
+            Money remaining = paid.plus(credit);
+            for (int i = 0; i < rows.size(); i++) {
+                Settlement s = rows.get(i);
+                Money change;
+                if (s.getToUser().equals(fromUser)) {
+                    change = balances.get(i);
+                } else {
+                    change = balances.get(i).min(remaining);
+                    remaining = remaining.minus(change);
+                }
+                if (change.isPositive()) {
+                    deltas.computeIfAbsent(s.getGroupId(), k -> new ArrayList<>()).add(new SettlementDelta(
+                            s.getFromUser(), s.getToUser(), change.negate().toBigDecimal()));
+                }
+            }
+
+            Transaction transaction = new Transaction(fromUser, toUser, amount, null,
+                    note != null && !note.isEmpty() ? note
+                            : "Net payment across " + deltas.size()
+                                    + (deltas.size() == 1 ? " group" : " groups"));
+            transaction.setTransactionId(transactionDAO.insert(transaction));
+            DataVersions.changed(DataVersions.Kind.PAYMENTS);
+
+            settlementWriter.apply(deltas);
+            return transaction;
+        });
+    }
+
+    private List<PairNet> toPairNets(List<Settlement> rows) {
+        // Keyed by the ordered pair (lower ID first); value is what the lower
+        // ID owes the higher one, in cents
+        Map<String, long[]> nets = new HashMap<>();
+        Map<String, Set<Integer>> groups = new HashMap<>();
+        for (Settlement s : rows) {
+            boolean forward = s.getFromUser().compareTo(s.getToUser()) < 0;
+            String key = forward ? s.getFromUser() + '\u0000' + s.getToUser()
+                    : s.getToUser() + '\u0000' + s.getFromUser();
+            long cents = Money.of(s.getNetBalance()).getCents();
+            long[] net = nets.computeIfAbsent(key, k -> new long[2]);
+            net[0] += forward ? cents : -cents;
+            net[1]++;
+            groups.computeIfAbsent(key, k -> new HashSet<>()).add(s.getGroupId());
+        }
+
+        Set<String> userIds = new HashSet<>();
+        for (Map.Entry<String, long[]> entry : nets.entrySet()) {
+            if (entry.getValue()[0] != 0) {
+                String[] pair = entry.getKey().split("\u0000");
+                userIds.add(pair[0]);
+                userIds.add(pair[1]);
+            }
+        }
+        Map<String, User> users = userDAO.findByPhones(userIds);
+
+        List<PairNet> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : nets.entrySet()) {
+            long net = entry.getValue()[0];
+            if (net == 0) {
+                continue;
+            }
+            String[] pair = entry.getKey().split("\u0000");
+            String from = net > 0 ? pair[0] : pair[1];
+            String to = net > 0 ? pair[1] : pair[0];
+            result.add(new PairNet(from, userName(users, from), to, userName(users, to),
+                    Money.ofCents(Math.abs(net)).toBigDecimal(), groups.get(entry.getKey()).size(),
+                    (int) entry.getValue()[1]));
+        }
+
+        // Sort by amount descending, then by users for a stable order
+        result.sort((a, b) -> {
+            int c = b.amount.compareTo(a.amount);
+            if (c == 0) {
+                c = a.fromUserId.compareTo(b.fromUserId);
+            }
+            return c != 0 ? c : a.toUserId.compareTo(b.toUserId);
+        });
+        return result;
+    }
+
+    /**
+     * Display name from a batched lookup, "Unknown" if the user is gone
+     */
+    private String userName(Map<String, User> users, String userId) {
+        User user = users.get(userId);
+        return user != null ? user.getName() : "Unknown";
+    }
+}
@@ -1,11 +1,16 @@
 package com.expensetracker.service;
 
 import com.expensetracker.dao.*;
+import com.expensetracker.dao.cache.DAOFactory;
 import com.expensetracker.dao.impl.*;
 import com.expensetracker.model.*;
+import com.expensetracker.util.PageCursor;
+import com.expensetracker.util.TransactionRetry;
 import java.math.BigDecimal;
-import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * PaymentService - Business Logic for Payment Operations
@@ -16,22 +21,30 @@ import java.util.List;
  * - Update settlement balances
  * 
  * LAYER: Business Logic Layer
- * DEPENDENCIES: TransactionDAO, SettlementDAO
+ * DEPENDENCIES: TransactionDAO, SettlementDAO, GroupMemberDAO
  * 
  * ACID PROPERTIES:
- * - In DB implementation, payment recording should be atomic
- * - Transaction + Settlement update in single DB transaction
+ * - Payment recording is atomic: the transaction insert and the settlement
+ * update run in a single TransactionTemplate unit of work (rerun by
+ * TransactionRetry after a deadlock or lock timeout)
+ * - recordPaymentAsync() queues it on the group's GroupWriteQueue mailbox
  */
 public class PaymentService {
 
     private TransactionDAO transactionDAO;
     private SettlementDAO settlementDAO;
+    private SettlementWriter settlementWriter;
     private ExpenseDAO expenseDAO;
+    private GroupMemberDAO memberDAO;
+    private GroupWriteQueue writeQueue;
 
     public PaymentService() {
         this.transactionDAO = new TransactionDAOImpl();
         this.settlementDAO = new SettlementDAOImpl();
-        this.expenseDAO = new ExpenseDAOImpl();
+        this.settlementWriter = new SettlementWriter(settlementDAO);
+        this.expenseDAO = DAOFactory.expenseDAO();
+        this.memberDAO = DAOFactory.groupMemberDAO();
+        this.writeQueue = GroupWriteQueue.getInstance();
     }
 
     /**
@@ -51,13 +64,41 @@ public class PaymentService {
             throw new IllegalArgumentException("Cannot make payment to yourself");
         }
 
+        return TransactionRetry.inTransaction(
+                () -> insertPayment(fromUser, toUser, amount, expenseId, note,
+                        findPaymentGroup(fromUser, toUser, expenseId)));
+    }
+
+    /**
+     * recordPayment() on the write queue of the group whose balance it
+     * changes (found before queueing)
+     */
+    public CompletableFuture<Transaction> recordPaymentAsync(String fromUser, String toUser,
+            BigDecimal amount, Integer expenseId, String note) {
+        if (fromUser.equals(toUser)) {
+            throw new IllegalArgumentException("Cannot make payment to yourself");
+        }
+
+        // Group 0 (no settlement row to update) runs inline
+        int groupId = findPaymentGroup(fromUser, toUser, expenseId);
+        return writeQueue.submit(groupId,
+                () -> insertPayment(fromUser, toUser, amount, expenseId, note, groupId));
+    }
+
+    private Transaction insertPayment(String fromUser, String toUser, BigDecimal amount,
+            Integer expenseId, String note, int groupId) {
         // Create transaction record
         Transaction transaction = new Transaction(fromUser, toUser, amount, expenseId, note);
         int transactionId = transactionDAO.insert(transaction);
         transaction.setTransactionId(transactionId);
+        if (groupId > 0) {
+            DataVersions.changed(DataVersions.Kind.PAYMENTS, groupId);
+        } else {
+            DataVersions.changed(DataVersions.Kind.PAYMENTS);
+        }
 
         // Update settlement balance
-        updateSettlementOnPayment(fromUser, toUser, amount, expenseId);
+        updateSettlementOnPayment(fromUser, toUser, amount, groupId);
 
         return transaction;
     }
@@ -73,49 +114,50 @@ public class PaymentService {
     }
 
     /**
-     * Update settlement when payment is made
-     * This simulates what the database trigger does
+     * Find the group for this payment: the linked expense's group, else the
+     * first group where fromUser owes toUser (0 if none).
+     *
+     * Only the groups both users are in are probed (membership index), so
+     * the debtor's other settlements are not read; rows left behind by a
+     * member who has since left a group are still found by the full scan.
      */
-    private void updateSettlementOnPayment(String fromUser, String toUser,
-            BigDecimal amount, Integer expenseId) {
-        // Find the group for this payment
-        int groupId = 0;
+    private int findPaymentGroup(String fromUser, String toUser, Integer expenseId) {
         if (expenseId != null) {
             Expense expense = expenseDAO.findById(expenseId);
             if (expense != null) {
-                groupId = expense.getGroupId();
+                return expense.getGroupId();
             }
         }
 
-        if (groupId == 0) {
-            // Try to find any settlement between these users
-            List<Settlement> settlements = settlementDAO.findByDebtor(fromUser);
-            for (Settlement s : settlements) {
-                if (s.getToUser().equals(toUser)) {
-                    groupId = s.getGroupId();
-                    break;
-                }
+        for (int groupId : memberDAO.findCommonGroups(fromUser, toUser)) {
+            if (settlementDAO.findByUsers(groupId, fromUser, toUser) != null) {
+                return groupId;
             }
         }
 
-        if (groupId > 0) {
-            Settlement settlement = settlementDAO.findByUsers(groupId, fromUser, toUser);
-            if (settlement != null) {
-                BigDecimal newBalance = settlement.getNetBalance().subtract(amount);
-                settlement.setNetBalance(newBalance);
-
-                // Update status based on balance
-                if (newBalance.compareTo(BigDecimal.ZERO) <= 0) {
-                    settlement.setStatus(Settlement.SettlementStatus.SETTLED);
-                    settlement.setNetBalance(BigDecimal.ZERO);
-                } else {
-                    settlement.setStatus(Settlement.SettlementStatus.PARTIAL);
-                }
-
-                settlement.setLastUpdated(new Timestamp(System.currentTimeMillis()));
-                settlementDAO.update(settlement);
+        // Try to find any settlement between these users
+        List<Settlement> settlements = settlementDAO.findByDebtor(fromUser);
+        for (Settlement s : settlements) {
+            if (s.getToUser().equals(toUser)) {
+                return s.getGroupId();
             }
         }
+        return 0;
+    }
+
+    /**
+     * Update settlement when payment is made
+     * This simulates what the database trigger does
+     */
+    private void updateSettlementOnPayment(String fromUser, String toUser,
+            BigDecimal amount, int groupId) {
+        if (groupId > 0) {
+            // Single atomic upsert; status (PARTIAL/SETTLED) is computed in SQL
+            // and mirrored by the ledger after commit
+            List<SettlementDelta> deltas = Collections.singletonList(
+                    new SettlementDelta(fromUser, toUser, amount.negate()));
+            settlementWriter.apply(groupId, deltas);
+        }
     }
 
     /**
@@ -132,6 +174,43 @@ public class PaymentService {
         return transactionDAO.findByGroup(groupId);
     }
 
+    /**
+     * Get one page of a user's transactions, newest first
+     *
+     * @param cursor nextCursor from the previous page, or null for the first
+     * @param limit  page size (clamped to PageCursor.MAX_LIMIT)
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public Page<Transaction> getTransactionsByUserPage(String userId, String cursor, int limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(transactionDAO.findByUserPage(userId, PageCursor.decode(cursor), size + 1), size);
+    }
+
+    /**
+     * Get one page of a group's transactions, newest first
+     *
+     * @param cursor nextCursor from the previous page, or null for the first
+     * @param limit  page size (clamped to PageCursor.MAX_LIMIT)
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public Page<Transaction> getTransactionsByGroupPage(int groupId, String cursor, int limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(transactionDAO.findByGroupPage(groupId, PageCursor.decode(cursor), size + 1), size);
+    }
+
+    /**
+     * Trim the one extra row fetched to detect a following page.
+     */
+    private Page<Transaction> toPage(List<Transaction> rows, int size) {
+        String next = null;
+        if (rows.size() > size) {
+            rows = new ArrayList<>(rows.subList(0, size));
+            Transaction last = rows.get(size - 1);
+            next = new PageCursor(last.getCreatedAt(), last.getTransactionId()).encode();
+        }
+        return new Page<>(rows, next);
+    }
+
     /**
      * Get transaction by ID
      */
@@ -0,0 +1,134 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.SettlementDAO;
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.ConcurrentUpdateException;
+import com.expensetracker.util.TransactionRetry;
+import com.expensetracker.util.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SettlementCompactor - One-time merge of bidirectional settlement rows
+ *
+ * Data written before compaction mode (settlement.compact) can hold both
+ * A -> B and B -> A rows in a group. This folds each such pair into one row
+ * holding the difference and deletes the other, one transaction per group.
+ *
+ * Started in the background at application start when compaction mode is
+ * on; it stops once no bidirectional pair is left, so later starts only cost
+ * one query.
+ */
+public class SettlementCompactor {
+
+    // Pairs read per round
+    private static final int BATCH_SIZE = 500;
+
+    private static boolean started;
+
+    private final SettlementDAO settlementDAO;
+
+    public SettlementCompactor() {
+        this.settlementDAO = new SettlementDAOImpl();
+    }
+
+    /**
+     * Run compactAll() once on a daemon thread if compaction mode is on.
+     */
+    public static synchronized void startInBackground() {
+        if (started || !SettlementWriter.isCompacting()) {
+            return;
+        }
+        started = true;
+        Thread thread = new Thread(() -> {
+            try {
+                int pairs = new SettlementCompactor().compactAll();
+                if (pairs > 0) {
+                    System.out.println("Settlement compaction merged " + pairs + " pairs");
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Settlement compaction stopped: " + e.getMessage());
+            }
+        }, "settlement-compactor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Merge every bidirectional pair.
+     *
+     * @return number of pairs merged
+     */
+    public int compactAll() {
+        int total = 0;
+        while (true) {
+            List<Settlement> batch = settlementDAO.findWithReverse(BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return total;
+            }
+            Map<Integer, List<SettlementDelta>> pairsByGroup = new LinkedHashMap<>();
+            for (Settlement s : batch) {
+                pairsByGroup.computeIfAbsent(s.getGroupId(), k -> new ArrayList<>())
+                        .add(new SettlementDelta(s.getFromUser(), s.getToUser(), BigDecimal.ZERO));
+            }
+            int merged = 0;
+            for (Map.Entry<Integer, List<SettlementDelta>> entry : pairsByGroup.entrySet()) {
+                merged += compactGroup(entry.getKey(), entry.getValue());
+            }
+            if (merged == 0) {
+                // Nothing merged: stop rather than re-read the same rows
+                return total;
+            }
+            total += merged;
+        }
+    }
+
+    private int compactGroup(int groupId, List<SettlementDelta> pairs) {
+        return TransactionRetry.inTransaction(() -> {
+            Map<String, Settlement> rows = new HashMap<>();
+            for (Settlement s : settlementDAO.findPairsForUpdate(groupId, pairs)) {
+                rows.put(s.getFromUser() + '\u0000' + s.getToUser(), s);
+            }
+
+            List<Integer> deleteIds = new ArrayList<>();
+            List<Settlement> updates = new ArrayList<>();
+            for (SettlementDelta pair : pairs) {
+                Settlement forward = rows.get(pair.getFromUser() + '\u0000' + pair.getToUser());
+                Settlement reverse = rows.get(pair.getToUser() + '\u0000' + pair.getFromUser());
+                if (forward == null || reverse == null) {
+                    continue; // already compacted by a writer
+                }
+                BigDecimal net = forward.getNetBalance().subtract(reverse.getNetBalance());
+                Settlement keep = net.signum() >= 0 ? forward : reverse;
+                Settlement drop = keep == forward ? reverse : forward;
+
+                keep.setNetBalance(net.abs());
+                if (net.signum() == 0) {
+                    keep.setStatus(Settlement.SettlementStatus.SETTLED);
+                } else if (keep.getStatus() == Settlement.SettlementStatus.SETTLED) {
+                    keep.setStatus(Settlement.SettlementStatus.PENDING);
+                }
+                updates.add(keep);
+                deleteIds.add(drop.getId());
+            }
+
+            if (!settlementDAO.deleteByIds(deleteIds)) {
+                return 0;
+            }
+            for (Settlement s : updates) {
+                if (!settlementDAO.update(s)) {
+                    throw new ConcurrentUpdateException("Settlement " + s.getId() + " changed during compaction");
+                }
+            }
+            TransactionTemplate.onCompletion(() -> GroupLedger.getInstance().invalidate(groupId));
+            SettlementViewCache.getInstance().groupChanged(groupId);
+            return updates.size();
+        });
+    }
+}
@@ -1,10 +1,13 @@
 package com.expensetracker.service;
 
 import com.expensetracker.dao.*;
+import com.expensetracker.dao.cache.DAOFactory;
 import com.expensetracker.dao.impl.*;
 import com.expensetracker.model.*;
+import com.expensetracker.util.DatabaseConfig;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * SettlementService - Business Logic for Settlement Operations
@@ -13,18 +16,40 @@ import java.util.*;
  * - Compute net balances between users
  * - Generate "who owes whom" summary
  * - Optional debt simplification
+ * - Cycle cancellation (A owes B owes C owes A) on the stored rows
+ * 
+ * Balance reads go through GroupLedger (in-memory per group) and fall back
+ * to SettlementDAO when the ledger is disabled or cannot load the group.
+ * The summary, balance and simplified views are kept per group write
+ * version in SettlementViewCache; the returned lists are shared and must
+ * not be modified.
  * 
  * LAYER: Business Logic Layer
- * DEPENDENCIES: SettlementDAO, UserDAO
+ * DEPENDENCIES: SettlementDAO, UserDAO, GroupLedger, SettlementViewCache,
+ * GroupWriteQueue
  */
 public class SettlementService {
 
     private SettlementDAO settlementDAO;
     private UserDAO userDAO;
+    private GroupLedger ledger;
+    private SettlementViewCache viewCache;
+    private SettlementWriter settlementWriter;
+    private GroupWriteQueue writeQueue;
+    private int exactMaxMembers;
+    private long exactBudgetMs;
 
     public SettlementService() {
         this.settlementDAO = new SettlementDAOImpl();
-        this.userDAO = new UserDAOImpl();
+        this.userDAO = DAOFactory.userDAO();
+        this.ledger = GroupLedger.getInstance();
+        this.viewCache = SettlementViewCache.getInstance();
+        this.settlementWriter = new SettlementWriter(settlementDAO);
+        this.writeQueue = GroupWriteQueue.getInstance();
+        this.exactMaxMembers = (int) DatabaseConfig.getLongSetting("settlement.exactMaxMembers",
+                "EXPENSE_TRACKER_SETTLEMENT_EXACT_MAX_MEMBERS", 20);
+        this.exactBudgetMs = DatabaseConfig.getLongSetting("settlement.exactBudgetMs",
+                "EXPENSE_TRACKER_SETTLEMENT_EXACT_BUDGET_MS", 200);
     }
 
     /**
@@ -78,19 +103,28 @@ public class SettlementService {
      * Get settlement summary with user names (for display)
      */
     public List<SettlementSummary> getSettlementSummary(int groupId) {
-        List<Settlement> settlements = settlementDAO.findPendingByGroup(groupId);
+        return viewCache.get(groupId, "summary", () -> computeSettlementSummary(groupId));
+    }
+
+    private List<SettlementSummary> computeSettlementSummary(int groupId) {
+        List<Settlement> settlements = pendingByGroup(groupId);
         List<SettlementSummary> summaries = new ArrayList<>();
 
+        // Resolve every name in one query
+        Set<String> userIds = new HashSet<>();
         for (Settlement s : settlements) {
-            if (s.getNetBalance().compareTo(BigDecimal.ZERO) > 0) {
-                User fromUser = userDAO.findByPhone(s.getFromUser());
-                User toUser = userDAO.findByPhone(s.getToUser());
+            userIds.add(s.getFromUser());
+            userIds.add(s.getToUser());
+        }
+        Map<String, User> users = userDAO.findByPhones(userIds);
 
+        for (Settlement s : settlements) {
+            if (s.getNetBalance().compareTo(BigDecimal.ZERO) > 0) {
                 summaries.add(new SettlementSummary(
                         s.getFromUser(),
-                        fromUser != null ? fromUser.getName() : "Unknown",
+                        userName(users, s.getFromUser()),
                         s.getToUser(),
-                        toUser != null ? toUser.getName() : "Unknown",
+                        userName(users, s.getToUser()),
                         s.getNetBalance(),
                         s.getStatus().toString()));
             }
@@ -98,7 +132,7 @@ public class SettlementService {
 
         // Sort by amount descending
         summaries.sort((a, b) -> b.amount.compareTo(a.amount));
-        return summaries;
+        return Collections.unmodifiableList(summaries);
     }
 
     /**
@@ -107,28 +141,10 @@ public class SettlementService {
      * Negative = user owes money
      */
     public BigDecimal calculateUserNetBalance(int groupId, String userId) {
-        BigDecimal owes = BigDecimal.ZERO;
-        BigDecimal owed = BigDecimal.ZERO;
-
-        // Amount user owes others
-        List<Settlement> asDebtor = settlementDAO.findByDebtor(userId);
-        for (Settlement s : asDebtor) {
-            if (s.getGroupId() == groupId &&
-                    s.getStatus() != Settlement.SettlementStatus.SETTLED) {
-                owes = owes.add(s.getNetBalance());
-            }
-        }
-
-        // Amount others owe user
-        List<Settlement> asCreditor = settlementDAO.findByCreditor(userId);
-        for (Settlement s : asCreditor) {
-            if (s.getGroupId() == groupId &&
-                    s.getStatus() != Settlement.SettlementStatus.SETTLED) {
-                owed = owed.add(s.getNetBalance());
-            }
-        }
-
-        return owed.subtract(owes);
+        // Only this group's balances, instead of pulling the user's
+        // settlements from every group and filtering here
+        BigDecimal net = netBalancesByGroup(groupId).get(userId);
+        return net != null ? net : BigDecimal.ZERO;
     }
 
     /**
@@ -160,105 +176,155 @@ public class SettlementService {
      * Get balance summary for all members of a group
      */
     public List<UserBalance> getGroupBalanceSummary(int groupId) {
+        return viewCache.get(groupId, "balances", () -> computeGroupBalanceSummary(groupId));
+    }
+
+    private List<UserBalance> computeGroupBalanceSummary(int groupId) {
         List<UserBalance> balances = new ArrayList<>();
-        Set<String> userIds = new HashSet<>();
 
-        // Collect all users involved in settlements
-        List<Settlement> settlements = settlementDAO.findByGroup(groupId);
-        for (Settlement s : settlements) {
-            userIds.add(s.getFromUser());
-            userIds.add(s.getToUser());
-        }
+        // Every member's net balance from the ledger (or one aggregate query)
+        Map<String, BigDecimal> netBalances = netBalancesByGroup(groupId);
 
-        // Calculate balance for each user
-        for (String userId : userIds) {
-            User user = userDAO.findByPhone(userId);
-            BigDecimal netBalance = calculateUserNetBalance(groupId, userId);
-            balances.add(new UserBalance(userId,
-                    user != null ? user.getName() : "Unknown", netBalance));
+        Map<String, User> users = userDAO.findByPhones(netBalances.keySet());
+        for (Map.Entry<String, BigDecimal> entry : netBalances.entrySet()) {
+            balances.add(new UserBalance(entry.getKey(), userName(users, entry.getKey()), entry.getValue()));
         }
 
         // Sort by balance
         balances.sort((a, b) -> b.netBalance.compareTo(a.netBalance));
-        return balances;
+        return Collections.unmodifiableList(balances);
     }
 
     /**
      * ADVANCED: Simplify debts using graph algorithm
      * Reduces the number of transactions needed to settle all debts
      * 
-     * Algorithm:
-     * 1. Calculate net balance for each person
-     * 2. Match creditors with debtors
-     * 3. Create minimal transaction set
+     * Algorithm (see DebtSimplifier):
+     * 1. Calculate net balance for each person, in cents
+     * 2. Match the largest creditor with the largest debtor until all are settled
+     * 3. At most n - 1 transactions, same plan for the same balances
      */
     public List<SettlementSummary> simplifyDebts(int groupId) {
-        // Calculate net balance for each user
-        Map<String, BigDecimal> netBalances = new HashMap<>();
-        List<Settlement> settlements = settlementDAO.findPendingByGroup(groupId);
-
-        for (Settlement s : settlements) {
-            // From user owes money (negative)
-            netBalances.merge(s.getFromUser(),
-                    s.getNetBalance().negate(), BigDecimal::add);
-            // To user is owed money (positive)
-            netBalances.merge(s.getToUser(),
-                    s.getNetBalance(), BigDecimal::add);
-        }
+        return viewCache.get(groupId, "simplify",
+                () -> toSummaries(DebtSimplifier.simplify(netCentsByGroup(groupId))));
+    }
 
-        // Separate into creditors and debtors
-        List<String> usersList = new ArrayList<>();
-        List<BigDecimal> amounts = new ArrayList<>();
-        List<Integer> creditors = new ArrayList<>();
-        List<Integer> debtors = new ArrayList<>();
+    /**
+     * Like simplifyDebts(), but with the fewest possible transactions: members
+     * are split into as many zero-sum subsets as possible (each settles on its
+     * own). Exact for groups with up to settlement.exactMaxMembers members
+     * with a balance, if it finishes within settlement.exactBudgetMs;
+     * otherwise the same plan as simplifyDebts().
+     */
+    public List<SettlementSummary> simplifyDebtsOptimal(int groupId) {
+        return viewCache.get(groupId, "simplifyOptimal",
+                () -> toSummaries(DebtSimplifier.simplifyOptimal(netCentsByGroup(groupId),
+                        exactMaxMembers, TimeUnit.MILLISECONDS.toNanos(exactBudgetMs))));
+    }
 
-        int idx = 0;
-        for (Map.Entry<String, BigDecimal> entry : netBalances.entrySet()) {
-            usersList.add(entry.getKey());
-            amounts.add(entry.getValue());
-            if (entry.getValue().compareTo(BigDecimal.ZERO) > 0) {
-                creditors.add(idx);
-            } else if (entry.getValue().compareTo(BigDecimal.ZERO) < 0) {
-                debtors.add(idx);
-            }
-            idx++;
+    /**
+     * Data class for a cycle cancellation result
+     */
+    public static class CycleCancellation {
+        public int groupId;
+        public int cyclesCancelled;
+        public int edgesBefore;
+        public int edgesClosed;
+        public BigDecimal amountCancelled;
+        public boolean applied;
+
+        public CycleCancellation(int groupId, CycleCanceller.Plan plan, boolean applied) {
+            this.groupId = groupId;
+            this.cyclesCancelled = plan.getCycles();
+            this.edgesBefore = plan.getEdgesBefore();
+            this.edgesClosed = plan.getEdgesClosed();
+            this.amountCancelled = plan.getAmountCancelled().toBigDecimal();
+            this.applied = applied;
         }
+    }
 
-        // Generate simplified transactions
-        List<SettlementSummary> simplified = new ArrayList<>();
-        int c = 0, d = 0;
-
-        while (c < creditors.size() && d < debtors.size()) {
-            int creditorIdx = creditors.get(c);
-            String creditorId = usersList.get(creditorIdx);
-
-            int debtorIdx = debtors.get(d);
-            String debtorId = usersList.get(debtorIdx);
-
-            BigDecimal credit = amounts.get(creditorIdx);
-            BigDecimal debt = amounts.get(debtorIdx).abs();
+    /**
+     * What cancelCycles() would do to a group, without changing anything
+     */
+    public CycleCancellation previewCycleCancellation(int groupId) {
+        return new CycleCancellation(groupId, CycleCanceller.cancel(pendingByGroup(groupId)), false);
+    }
 
-            BigDecimal transfer = credit.min(debt);
+    /**
+     * Remove debt cycles from a group's pending settlements (see
+     * CycleCanceller). Nobody's net balance changes; the group just has
+     * fewer open rows. Runs on the group's GroupWriteQueue like other
+     * writes to it (retried on deadlock); the rows are locked while the
+     * cycles are found and all reductions are written in one transaction.
+     */
+    public CycleCancellation cancelCycles(int groupId) {
+        return GroupWriteQueue.await(writeQueue.submit(groupId, () -> {
+            // Earlier commands of the same batch may still hold their deltas
+            settlementWriter.writeDeferred();
+            CycleCanceller.Plan plan = CycleCanceller.cancel(settlementDAO.findPendingByGroupForUpdate(groupId));
+            if (!plan.getDeltas().isEmpty()) {
+                settlementWriter.apply(groupId, plan.getDeltas());
+            }
+            return new CycleCancellation(groupId, plan, plan.getCycles() > 0);
+        }));
+    }
 
-            if (transfer.compareTo(BigDecimal.ZERO) > 0) {
-                User debtor = userDAO.findByPhone(debtorId);
-                User creditor = userDAO.findByPhone(creditorId);
+    private List<SettlementSummary> toSummaries(List<DebtSimplifier.Transfer> transfers) {
+        // Names only for members that appear in the plan
+        Set<String> userIds = new HashSet<>();
+        for (DebtSimplifier.Transfer t : transfers) {
+            userIds.add(t.getFromUser());
+            userIds.add(t.getToUser());
+        }
+        Map<String, User> users = userDAO.findByPhones(userIds);
+
+        List<SettlementSummary> simplified = new ArrayList<>(transfers.size());
+        for (DebtSimplifier.Transfer t : transfers) {
+            simplified.add(new SettlementSummary(
+                    t.getFromUser(), userName(users, t.getFromUser()),
+                    t.getToUser(), userName(users, t.getToUser()),
+                    Money.ofCents(t.getAmountCents()).toBigDecimal(), "SIMPLIFIED"));
+        }
+        return Collections.unmodifiableList(simplified);
+    }
 
-                simplified.add(new SettlementSummary(
-                        debtorId, debtor != null ? debtor.getName() : "Unknown",
-                        creditorId, creditor != null ? creditor.getName() : "Unknown",
-                        transfer, "SIMPLIFIED"));
-            }
+    /**
+     * PENDING/PARTIAL rows of a group, from the ledger if it has them
+     */
+    private List<Settlement> pendingByGroup(int groupId) {
+        List<Settlement> pending = ledger.pendingSettlements(groupId);
+        return pending != null ? pending : settlementDAO.findPendingByGroup(groupId);
+    }
 
-            amounts.set(creditorIdx, credit.subtract(transfer));
-            amounts.set(debtorIdx, amounts.get(debtorIdx).add(transfer));
+    /**
+     * Net balance per user of a group, from the ledger if it has them
+     */
+    private Map<String, BigDecimal> netBalancesByGroup(int groupId) {
+        Map<String, BigDecimal> nets = ledger.netBalances(groupId);
+        return nets != null ? nets : settlementDAO.netBalancesByGroup(groupId);
+    }
 
-            if (amounts.get(creditorIdx).compareTo(BigDecimal.ZERO) == 0)
-                c++;
-            if (amounts.get(debtorIdx).compareTo(BigDecimal.ZERO) == 0)
-                d++;
+    /**
+     * Net balance per user of a group in cents (for DebtSimplifier)
+     */
+    private Map<String, Long> netCentsByGroup(int groupId) {
+        Map<String, Long> cents = ledger.netCents(groupId);
+        if (cents != null) {
+            return cents;
+        }
+        Map<String, BigDecimal> nets = settlementDAO.netBalancesByGroup(groupId);
+        cents = new HashMap<>(nets.size() * 2);
+        for (Map.Entry<String, BigDecimal> entry : nets.entrySet()) {
+            cents.put(entry.getKey(), Money.of(entry.getValue()).getCents());
         }
+        return cents;
+    }
 
-        return simplified;
+    /**
+     * Display name from a batched lookup, "Unknown" if the user is gone
+     */
+    private String userName(Map<String, User> users, String userId) {
+        User user = users.get(userId);
+        return user != null ? user.getName() : "Unknown";
     }
 }
@@ -0,0 +1,164 @@
+package com.expensetracker.service;
+
+import com.expensetracker.util.DatabaseConfig;
+import com.expensetracker.util.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * SettlementViewCache - Computed settlement views per group write version
+ *
+ * The summary, balance and simplified-debt views of a group only change
+ * when the group's settlements do, but the settlement pages poll them. The
+ * group's SETTLEMENTS version (DataVersions) moves on once a change to its
+ * settlements has ended (SettlementWriter, SettlementCompactor,
+ * GroupService.deleteGroup()); a view is kept with the version it was
+ * computed at and served until the version moves on.
+ *
+ * CONSISTENCY:
+ * - The version is read before computing, so a view computed while a write
+ * commits is kept under the old version and never served after it
+ * - Versions move on after commit and after the ledger has applied the
+ * change (onCompletion runs after onCommit)
+ * - Only this process's writes are seen (like GroupLedger)
+ *
+ * Views of the settlement.viewCacheMaxGroups most recently read groups are
+ * kept. Cached lists are shared and unmodifiable; their elements must not be
+ * changed either.
+ *
+ * SETTINGS (db.properties or environment):
+ * - settlement.viewCacheMaxGroups (default 1000; 0 = off)
+ */
+public class SettlementViewCache {
+
+    // Singleton instance
+    private static SettlementViewCache instance;
+
+    private final int maxGroups;
+
+    // Views per group in LRU order; guarded by itself
+    private final LinkedHashMap<Integer, GroupViews> views;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private SettlementViewCache(int maxGroups) {
+        this.maxGroups = maxGroups;
+        this.views = new LinkedHashMap<Integer, GroupViews>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, GroupViews> eldest) {
+                return size() > maxGroups;
+            }
+        };
+    }
+
+    public static synchronized SettlementViewCache getInstance() {
+        if (instance == null) {
+            instance = new SettlementViewCache((int) Math.max(0, DatabaseConfig.getLongSetting(
+                    "settlement.viewCacheMaxGroups", "EXPENSE_TRACKER_SETTLEMENT_VIEW_CACHE_MAX_GROUPS", 1000)));
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return maxGroups > 0;
+    }
+
+    /**
+     * The group's settlements are being changed: move its version on when
+     * the current transaction ends (at once outside a transaction).
+     */
+    public void groupChanged(int groupId) {
+        DataVersions.changed(DataVersions.Kind.SETTLEMENTS, groupId);
+        TransactionTemplate.onCompletion(() -> {
+            synchronized (views) {
+                views.remove(groupId);
+            }
+        });
+    }
+
+    /**
+     * Current write version of a group's settlements
+     */
+    public long version(int groupId) {
+        return DataVersions.version(DataVersions.Kind.SETTLEMENTS, groupId);
+    }
+
+    /**
+     * The named view of a group: the cached one if the group has not changed
+     * since it was computed, else compute's result (then cached).
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(int groupId, String view, Supplier<T> compute) {
+        if (maxGroups <= 0) {
+            return compute.get();
+        }
+
+        long version = version(groupId);
+        synchronized (views) {
+            GroupViews cached = views.get(groupId);
+            if (cached != null && cached.version == version) {
+                Object value = cached.values.get(view);
+                if (value != null) {
+                    hits.incrementAndGet();
+                    return (T) value;
+                }
+            }
+        }
+        misses.incrementAndGet();
+
+        T value = compute.get();
+        synchronized (views) {
+            GroupViews cached = views.get(groupId);
+            if (cached == null || cached.version < version) {
+                cached = new GroupViews(version);
+                views.put(groupId, cached);
+            }
+            // An older version's result is not kept
+            if (cached.version == version) {
+                cached.values.put(view, value);
+            }
+        }
+        return value;
+    }
+
+    // ==================== STATS ====================
+
+    /** Views served from memory */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Views computed */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getCachedGroups() {
+        synchronized (views) {
+            return views.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementViewCache{maxGroups=" + maxGroups + ", cachedGroups=" + getCachedGroups()
+                + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+
+    /**
+     * Views of one group at one version
+     */
+    private static class GroupViews {
+        final long version;
+        final Map<String, Object> values = new HashMap<>();
+
+        GroupViews(long version) {
+            this.version = version;
+        }
+    }
+}
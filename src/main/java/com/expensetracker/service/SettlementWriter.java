@@ -0,0 +1,212 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dao.SettlementDAO;
+import com.expensetracker.model.Money;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.DatabaseConfig;
+import com.expensetracker.util.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies settlement deltas for the services that change balances (expenses,
+ * payments, netting) and tells GroupLedger and SettlementViewCache about
+ * them.
+ *
+ * COMPACTION MODE (settlement.compact=true):
+ * - A pair keeps at most one row per group: a delta against the reverse row
+ * (A owes B while B owes A) is netted into that row instead of creating a
+ * second one
+ * - When the reverse row would go below zero it is deleted and the remainder
+ * becomes a new row in the delta's direction, so balances stay positive (an
+ * overpayment shows up as the payee owing the payer)
+ * - The pair's rows are locked (FOR UPDATE) first, so this must run inside a
+ * transaction; pairs that still have both rows are left to
+ * SettlementCompactor
+ *
+ * Otherwise the deltas go to SettlementDAO.applyDeltas() unchanged; an
+ * overpayment then still ends up on the reverse pair, but a pair may keep a
+ * row in each direction.
+ *
+ * While a GroupWriteQueue batch runs (deferUntilFlush()), deltas are only
+ * collected on the thread and written together by flush().
+ */
+final class SettlementWriter {
+
+    private static final boolean COMPACT = Boolean.parseBoolean(DatabaseConfig.getSetting(
+            "settlement.compact", "EXPENSE_TRACKER_SETTLEMENT_COMPACT", "false"));
+
+    // Deltas collected for the batch running on this thread, or null
+    private static final ThreadLocal<Map<Integer, List<SettlementDelta>>> DEFERRED = new ThreadLocal<>();
+
+    private final SettlementDAO settlementDAO;
+
+    SettlementWriter(SettlementDAO settlementDAO) {
+        this.settlementDAO = settlementDAO;
+    }
+
+    static boolean isCompacting() {
+        return COMPACT;
+    }
+
+    void apply(int groupId, List<SettlementDelta> deltas) {
+        apply(Collections.singletonMap(groupId, deltas));
+    }
+
+    /**
+     * Collect this thread's deltas from now on instead of writing them; call
+     * flush() (or discardDeferred()) before the transaction ends.
+     */
+    static void deferUntilFlush() {
+        DEFERRED.set(new TreeMap<>());
+    }
+
+    /**
+     * Drop deltas collected on this thread and stop collecting.
+     */
+    static void discardDeferred() {
+        DEFERRED.remove();
+    }
+
+    /**
+     * Write the deltas collected since deferUntilFlush() and stop collecting.
+     */
+    void flush() {
+        Map<Integer, List<SettlementDelta>> deferred = DEFERRED.get();
+        DEFERRED.remove();
+        if (deferred != null && !deferred.isEmpty()) {
+            apply(deferred);
+        }
+    }
+
+    /**
+     * Write the deltas collected so far and keep collecting; for a queued
+     * command that reads balances earlier commands of its batch changed.
+     */
+    void writeDeferred() {
+        Map<Integer, List<SettlementDelta>> deferred = DEFERRED.get();
+        if (deferred != null && !deferred.isEmpty()) {
+            DEFERRED.remove();
+            try {
+                apply(deferred);
+            } finally {
+                DEFERRED.set(new TreeMap<>());
+            }
+        }
+    }
+
+    void apply(Map<Integer, List<SettlementDelta>> deltasByGroup) {
+        Map<Integer, List<SettlementDelta>> deferred = DEFERRED.get();
+        if (deferred != null) {
+            for (Map.Entry<Integer, List<SettlementDelta>> entry : deltasByGroup.entrySet()) {
+                deferred.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            return;
+        }
+        for (Integer groupId : deltasByGroup.keySet()) {
+            SettlementViewCache.getInstance().groupChanged(groupId);
+        }
+        if (!COMPACT) {
+            if (settlementDAO.applyDeltas(deltasByGroup)) {
+                for (Map.Entry<Integer, List<SettlementDelta>> entry : deltasByGroup.entrySet()) {
+                    GroupLedger.getInstance().recordDeltas(entry.getKey(), entry.getValue());
+                }
+            } else {
+                // Rows may be half written; reload the groups on next read
+                invalidateOnCompletion(deltasByGroup);
+            }
+            return;
+        }
+
+        Map<Integer, List<SettlementDelta>> removedByGroup = new TreeMap<>();
+        Map<Integer, List<SettlementDelta>> netted = new TreeMap<>();
+        List<Integer> removedIds = new ArrayList<>();
+        for (Map.Entry<Integer, List<SettlementDelta>> entry : deltasByGroup.entrySet()) {
+            List<SettlementDelta> removed = new ArrayList<>();
+            netted.put(entry.getKey(), compact(entry.getKey(), entry.getValue(), removed, removedIds));
+            removedByGroup.put(entry.getKey(), removed);
+        }
+
+        if (settlementDAO.deleteByIds(removedIds) && settlementDAO.applyDeltas(netted)) {
+            for (Map.Entry<Integer, List<SettlementDelta>> entry : netted.entrySet()) {
+                GroupLedger.getInstance().recordDeltas(entry.getKey(),
+                        removedByGroup.get(entry.getKey()), entry.getValue());
+            }
+        } else {
+            invalidateOnCompletion(deltasByGroup);
+        }
+    }
+
+    /**
+     * Rewrite one group's deltas so every pair ends up with a single row.
+     * Rows to delete are added to removed (pair) and removedIds.
+     */
+    private List<SettlementDelta> compact(int groupId, List<SettlementDelta> deltas,
+            List<SettlementDelta> removed, List<Integer> removedIds) {
+        if (!TransactionTemplate.isActive()) {
+            throw new IllegalStateException("Settlement compaction must run inside a transaction");
+        }
+
+        Map<String, Settlement> rows = new HashMap<>();
+        for (Settlement s : settlementDAO.findPairsForUpdate(groupId, deltas)) {
+            rows.put(s.getFromUser() + '\u0000' + s.getToUser(), s);
+        }
+
+        // Sum per unordered pair: what the smaller user ID owes the larger
+        Map<String, Money> sums = new TreeMap<>();
+        Map<String, List<SettlementDelta>> originals = new HashMap<>();
+        for (SettlementDelta delta : deltas) {
+            boolean forward = delta.getFromUser().compareTo(delta.getToUser()) < 0;
+            String key = forward ? delta.getFromUser() + '\u0000' + delta.getToUser()
+                    : delta.getToUser() + '\u0000' + delta.getFromUser();
+            Money amount = Money.of(delta.getAmount());
+            sums.merge(key, forward ? amount : amount.negate(), Money::plus);
+            originals.computeIfAbsent(key, k -> new ArrayList<>()).add(delta);
+        }
+
+        List<SettlementDelta> result = new ArrayList<>();
+        for (Map.Entry<String, Money> entry : sums.entrySet()) {
+            int signum = entry.getValue().signum();
+            if (signum == 0) {
+                continue;
+            }
+            String[] pair = entry.getKey().split("\u0000");
+            String from = signum > 0 ? pair[0] : pair[1];
+            String to = signum > 0 ? pair[1] : pair[0];
+            Money amount = entry.getValue().abs();
+
+            Settlement reverse = rows.get(to + '\u0000' + from);
+            if (reverse != null && rows.containsKey(from + '\u0000' + to)) {
+                // Both rows still exist: leave the pair as it is
+                result.addAll(originals.get(entry.getKey()));
+                continue;
+            }
+            if (reverse == null) {
+                result.add(new SettlementDelta(from, to, amount.toBigDecimal()));
+                continue;
+            }
+
+            Money remaining = Money.of(reverse.getNetBalance()).minus(amount);
+            if (remaining.signum() >= 0) {
+                result.add(new SettlementDelta(to, from, amount.negate().toBigDecimal()));
+            } else {
+                removed.add(new SettlementDelta(to, from, BigDecimal.ZERO));
+                removedIds.add(reverse.getId());
+                result.add(new SettlementDelta(from, to, remaining.negate().toBigDecimal()));
+            }
+        }
+        return result;
+    }
+
+    private static void invalidateOnCompletion(Map<Integer, List<SettlementDelta>> deltasByGroup) {
+        for (Integer groupId : deltasByGroup.keySet()) {
+            TransactionTemplate.onCompletion(() -> GroupLedger.getInstance().invalidate(groupId));
+        }
+    }
+}
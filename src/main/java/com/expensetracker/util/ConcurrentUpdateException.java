@@ -0,0 +1,16 @@
+package com.expensetracker.util;
+
+/**
+ * A row changed between being read and being written (its version no longer
+ * matched). Thrown by services when an optimistic update (e.g.
+ * SettlementDAO.update()) returns false; TransactionRetry rolls back and
+ * runs the whole unit of work again.
+ */
+public class ConcurrentUpdateException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,368 @@
+package com.expensetracker.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool used behind DBUtil.getConnection().
+ *
+ * Physical connections are created on demand up to maxSize and kept warm down
+ * to minSize. Callers get a proxy whose close() hands the connection back to
+ * the pool instead of closing the socket, so the DAOs' try-with-resources
+ * blocks work unchanged.
+ *
+ * - Borrowing waits at most borrowTimeoutMs for a free connection
+ * - Idle connections are validated on borrow (skipped if used very recently)
+ * - A housekeeping thread evicts connections idle longer than idleTimeoutMs
+ * and reports connections held longer than leakDetectionMs; borrowing only
+ * records the time, the borrower's stack trace is captured only with
+ * leakTrace (a debugging aid, it costs a stack walk per borrow)
+ * - Each physical connection keeps an LRU StatementCache of up to
+ * statementCacheSize prepared statements (0 disables it)
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection to the database.
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Connections returned less than this long ago are trusted without a ping
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakDetectionMs;
+    private final boolean leakTrace;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+
+    // LIFO so the most recently used (warmest) connection is handed out first
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+            long borrowTimeoutMs, long idleTimeoutMs, long leakDetectionMs, boolean leakTrace,
+            int validationTimeoutSec, int statementCacheSize) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakDetectionMs = leakDetectionMs;
+        this.leakTrace = leakTrace;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(30_000, idleTimeoutMs / 2));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to borrowTimeoutMs if the pool is exhausted.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMs
+                        + "ms waiting for a database connection (active=" + borrowed.size()
+                        + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) {
+                    break;
+                }
+                discard(entry);
+            }
+            if (entry == null) {
+                entry = newEntry();
+            }
+            return lend(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry newEntry() throws SQLException {
+        Connection physical = factory.create();
+        totalConnections.incrementAndGet();
+        StatementCache cache = statementCacheSize > 0
+                ? new StatementCache(statementCacheSize, statementStats)
+                : null;
+        return new PooledEntry(physical, cache);
+    }
+
+    private Connection lend(PooledEntry entry) {
+        entry.borrowedAt = System.currentTimeMillis();
+        entry.borrowSite = leakDetectionMs > 0 && leakTrace
+                ? new Throwable("Connection borrowed here")
+                : null;
+        entry.leakReported = false;
+        borrowed.add(entry);
+
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(entry));
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastReturnedAt < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return a borrowed connection. Broken connections are dropped, healthy
+     * ones are reset to auto-commit and put back on the idle stack.
+     */
+    private void release(PooledEntry entry) {
+        if (!borrowed.remove(entry)) {
+            return;
+        }
+        try {
+            boolean healthy = !closed && !entry.physical.isClosed();
+            if (healthy && !entry.physical.getAutoCommit()) {
+                // Never hand out a connection with someone else's open transaction
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (healthy) {
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                discard(entry);
+            }
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            // already broken, nothing else to do
+        }
+    }
+
+    /**
+     * Periodic maintenance: evict stale idle connections, refill to minSize
+     * and report suspected leaks.
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext() && totalConnections.get() > minSize) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastReturnedAt > idleTimeoutMs && idle.remove(entry)) {
+                    discard(entry);
+                }
+            }
+
+            while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledEntry entry = newEntry();
+                    entry.lastReturnedAt = now;
+                    idle.offerLast(entry);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakDetectionMs > 0) {
+                for (PooledEntry entry : borrowed) {
+                    if (!entry.leakReported && now - entry.borrowedAt > leakDetectionMs) {
+                        entry.leakReported = true;
+                        System.err.println("Possible connection leak: connection held for "
+                                + (now - entry.borrowedAt) + "ms");
+                        if (entry.borrowSite != null) {
+                            entry.borrowSite.printStackTrace();
+                        } else {
+                            System.err.println("Set db.pool.leakTrace=true to log where it was borrowed");
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Prepared statements served from a connection's statement cache. */
+    public long getStatementCacheHits() {
+        return statementStats.hits.get();
+    }
+
+    /** Prepared statements that had to be prepared on the server. */
+    public long getStatementCacheMisses() {
+        return statementStats.misses.get();
+    }
+
+    /** Cached statements closed to stay within statementCacheSize. */
+    public long getStatementCacheEvictions() {
+        return statementStats.evictions.get();
+    }
+
+    /**
+     * Close all idle connections and stop housekeeping. Borrowed connections
+     * are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{total=" + getTotalCount() +
+                ", active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", max=" + maxSize +
+                ", stmtHits=" + getStatementCacheHits() +
+                ", stmtMisses=" + getStatementCacheMisses() +
+                '}';
+    }
+
+    /**
+     * Pool bookkeeping for one physical connection.
+     */
+    private static class PooledEntry {
+        final Connection physical;
+        final StatementCache statementCache;
+        volatile long lastReturnedAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledEntry(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /**
+     * Handle given to callers for the duration of one borrow. close() returns
+     * the connection to the pool; any use after that fails like a closed
+     * connection would.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private volatile boolean returned;
+
+        PooledConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (entry.statementCache != null && StatementCache.isCacheable(method, args)) {
+                return entry.statementCache.prepare(entry.physical, (Connection) proxy, args);
+            }
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -9,26 +9,96 @@ import java.sql.SQLException;
  *
  * Uses settings from db.properties (or environment variables) so the app
  * works on any computer without editing source code.
+ *
+ * Connections come from a shared ConnectionPool, so closing a connection in a
+ * DAO returns it to the pool instead of tearing down the TCP session.
+ *
+ * With db.mode=embedded the same pool sits on an in-process H2 database and
+ * the schema is created on first use (see EmbeddedDatabase).
  */
 public class DBUtil {
 
     static {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            Class.forName(DatabaseConfig.getDriverClass());
         } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found!");
+            System.err.println("JDBC Driver not found: " + DatabaseConfig.getDriverClass());
             e.printStackTrace();
-            throw new RuntimeException("Error loading MySQL Driver", e);
+            throw new RuntimeException("Error loading JDBC Driver", e);
         }
     }
 
+    private static volatile ConnectionPool pool;
+
     /**
-     * Get a connection to the database using config from db.properties or env.
+     * Get a pooled connection to the database using config from db.properties or env.
+     * Always close it (try-with-resources) to hand it back to the pool.
+     *
+     * Inside TransactionTemplate.inTransaction() this returns the connection
+     * bound to the current transaction instead.
      */
     public static Connection getConnection() throws SQLException {
+        Connection bound = TransactionTemplate.boundConnection();
+        if (bound != null) {
+            return bound;
+        }
+        return getPool().borrow();
+    }
+
+    /**
+     * Open a dedicated, unpooled connection.
+     */
+    public static Connection openPhysicalConnection() throws SQLException {
         return DriverManager.getConnection(
                 DatabaseConfig.getUrl(),
                 DatabaseConfig.getUser(),
                 DatabaseConfig.getPassword());
     }
+
+    /**
+     * The shared pool, created on first use.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBUtil.class) {
+                p = pool;
+                if (p == null) {
+                    if (DatabaseConfig.isEmbedded()) {
+                        initializeEmbedded();
+                    }
+                    p = new ConnectionPool(DBUtil::openPhysicalConnection,
+                            DatabaseConfig.getPoolMinSize(),
+                            DatabaseConfig.getPoolMaxSize(),
+                            DatabaseConfig.getPoolBorrowTimeoutMs(),
+                            DatabaseConfig.getPoolIdleTimeoutMs(),
+                            DatabaseConfig.getPoolLeakDetectionMs(),
+                            DatabaseConfig.isPoolLeakTrace(),
+                            DatabaseConfig.getPoolValidationTimeoutSec(),
+                            DatabaseConfig.getPoolStatementCacheSize());
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private static void initializeEmbedded() {
+        try (Connection conn = openPhysicalConnection()) {
+            EmbeddedDatabase.initialize(conn);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Error initializing embedded database", e);
+        }
+    }
+
+    /**
+     * Close every pooled connection. A later getConnection() starts a fresh pool.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
 }
@@ -15,19 +15,66 @@ import java.util.Properties;
  * 2. db.properties on classpath (e.g. src/main/resources)
  * 3. Environment variables: EXPENSE_TRACKER_DB_URL, EXPENSE_TRACKER_DB_USER, EXPENSE_TRACKER_DB_PASSWORD
  * 4. Defaults: localhost:3306, user root, empty password
+ *
+ * db.mode selects the backing database:
+ * - mysql (default): MySQL server via Connector/J
+ * - embedded: in-process H2 database in MySQL compatibility mode, stored under
+ * ./data; the schema is created on first start (see EmbeddedDatabase).
+ * Connection settings come from db.embedded.url/user/password instead.
+ * db.driver overrides the JDBC driver class for either mode.
+ *
+ * Connection pool settings (db.pool.*) follow the same precedence, e.g.
+ * db.pool.maxSize or EXPENSE_TRACKER_DB_POOL_MAX_SIZE.
+ *
+ * Other components read their own keys through getSetting()/getLongSetting()
+ * with the same precedence (e.g. ledger.maxGroups or
+ * EXPENSE_TRACKER_LEDGER_MAX_GROUPS).
+ *
+ * db.stream.fetchSize sets the fetch size used by the DAOs' stream*() methods.
+ * 0 (default) picks the driver's streaming mode: row-by-row for MySQL, 500-row
+ * chunks for the embedded database.
  */
 public class DatabaseConfig {
 
-    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/expense_tracker_db?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/expense_tracker_db?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&useServerPrepStmts=true&rewriteBatchedStatements=true";
     private static final String DEFAULT_SERVER_URL = "jdbc:mysql://localhost:3306/?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
     private static final String DEFAULT_USER = "root";
+    private static final String DEFAULT_DRIVER = "com.mysql.cj.jdbc.Driver";
+
+    public static final String MODE_MYSQL = "mysql";
+    public static final String MODE_EMBEDDED = "embedded";
+    private static final String DEFAULT_EMBEDDED_URL = "jdbc:h2:./data/expense_tracker_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+    private static final String DEFAULT_EMBEDDED_USER = "sa";
+    private static final String DEFAULT_EMBEDDED_DRIVER = "org.h2.Driver";
     private static final String DEFAULT_PASSWORD = "";
 
+    private static final int DEFAULT_POOL_MIN_SIZE = 2;
+    private static final int DEFAULT_POOL_MAX_SIZE = 10;
+    private static final long DEFAULT_POOL_BORROW_TIMEOUT_MS = 5_000;
+    private static final long DEFAULT_POOL_IDLE_TIMEOUT_MS = 600_000;
+    private static final long DEFAULT_POOL_LEAK_DETECTION_MS = 60_000;
+    private static final int DEFAULT_POOL_VALIDATION_TIMEOUT_SEC = 2;
+    private static final int DEFAULT_POOL_STATEMENT_CACHE_SIZE = 64;
+    private static final int EMBEDDED_STREAM_FETCH_SIZE = 500;
+
+    private static volatile Properties properties = new Properties();
+    private static volatile String mode;
+    private static volatile String driverClass;
     private static volatile String url;
     private static volatile String serverUrl;
     private static volatile String user;
     private static volatile String password;
 
+    private static volatile int poolMinSize;
+    private static volatile int poolMaxSize;
+    private static volatile long poolBorrowTimeoutMs;
+    private static volatile long poolIdleTimeoutMs;
+    private static volatile long poolLeakDetectionMs;
+    private static volatile boolean poolLeakTrace;
+    private static volatile int poolValidationTimeoutSec;
+    private static volatile int poolStatementCacheSize;
+    private static volatile int streamFetchSize;
+
     static {
         load();
     }
@@ -56,10 +103,41 @@ public class DatabaseConfig {
             }
         }
 
-        url = getPropOrEnv(p, "db.url", "EXPENSE_TRACKER_DB_URL", DEFAULT_URL);
+        properties = p;
+        mode = getPropOrEnv(p, "db.mode", "EXPENSE_TRACKER_DB_MODE", MODE_MYSQL).toLowerCase();
+        boolean embedded = MODE_EMBEDDED.equals(mode);
+
+        driverClass = getPropOrEnv(p, "db.driver", "EXPENSE_TRACKER_DB_DRIVER",
+                embedded ? DEFAULT_EMBEDDED_DRIVER : DEFAULT_DRIVER);
         serverUrl = getPropOrEnv(p, "db.url.server", "EXPENSE_TRACKER_DB_URL_SERVER", DEFAULT_SERVER_URL);
-        user = getPropOrEnv(p, "db.user", "EXPENSE_TRACKER_DB_USER", DEFAULT_USER);
-        password = getPropOrEnv(p, "db.password", "EXPENSE_TRACKER_DB_PASSWORD", DEFAULT_PASSWORD);
+        if (embedded) {
+            url = getPropOrEnv(p, "db.embedded.url", "EXPENSE_TRACKER_DB_EMBEDDED_URL", DEFAULT_EMBEDDED_URL);
+            user = getPropOrEnv(p, "db.embedded.user", "EXPENSE_TRACKER_DB_EMBEDDED_USER", DEFAULT_EMBEDDED_USER);
+            password = getPropOrEnv(p, "db.embedded.password", "EXPENSE_TRACKER_DB_EMBEDDED_PASSWORD", DEFAULT_PASSWORD);
+        } else {
+            url = getPropOrEnv(p, "db.url", "EXPENSE_TRACKER_DB_URL", DEFAULT_URL);
+            user = getPropOrEnv(p, "db.user", "EXPENSE_TRACKER_DB_USER", DEFAULT_USER);
+            password = getPropOrEnv(p, "db.password", "EXPENSE_TRACKER_DB_PASSWORD", DEFAULT_PASSWORD);
+        }
+
+        poolMinSize = (int) getLongPropOrEnv(p, "db.pool.minSize",
+                "EXPENSE_TRACKER_DB_POOL_MIN_SIZE", DEFAULT_POOL_MIN_SIZE);
+        poolMaxSize = (int) getLongPropOrEnv(p, "db.pool.maxSize",
+                "EXPENSE_TRACKER_DB_POOL_MAX_SIZE", DEFAULT_POOL_MAX_SIZE);
+        poolBorrowTimeoutMs = getLongPropOrEnv(p, "db.pool.borrowTimeoutMs",
+                "EXPENSE_TRACKER_DB_POOL_BORROW_TIMEOUT_MS", DEFAULT_POOL_BORROW_TIMEOUT_MS);
+        poolIdleTimeoutMs = getLongPropOrEnv(p, "db.pool.idleTimeoutMs",
+                "EXPENSE_TRACKER_DB_POOL_IDLE_TIMEOUT_MS", DEFAULT_POOL_IDLE_TIMEOUT_MS);
+        poolLeakDetectionMs = getLongPropOrEnv(p, "db.pool.leakDetectionMs",
+                "EXPENSE_TRACKER_DB_POOL_LEAK_DETECTION_MS", DEFAULT_POOL_LEAK_DETECTION_MS);
+        poolLeakTrace = Boolean.parseBoolean(getPropOrEnv(p, "db.pool.leakTrace",
+                "EXPENSE_TRACKER_DB_POOL_LEAK_TRACE", "false"));
+        poolValidationTimeoutSec = (int) getLongPropOrEnv(p, "db.pool.validationTimeoutSec",
+                "EXPENSE_TRACKER_DB_POOL_VALIDATION_TIMEOUT_SEC", DEFAULT_POOL_VALIDATION_TIMEOUT_SEC);
+        poolStatementCacheSize = (int) getLongPropOrEnv(p, "db.pool.statementCacheSize",
+                "EXPENSE_TRACKER_DB_POOL_STATEMENT_CACHE_SIZE", DEFAULT_POOL_STATEMENT_CACHE_SIZE);
+        streamFetchSize = (int) getLongPropOrEnv(p, "db.stream.fetchSize",
+                "EXPENSE_TRACKER_DB_STREAM_FETCH_SIZE", 0);
     }
 
     private static String getPropOrEnv(Properties p, String propKey, String envKey, String defaultValue) {
@@ -70,6 +148,46 @@ public class DatabaseConfig {
         return defaultValue;
     }
 
+    private static long getLongPropOrEnv(Properties p, String propKey, String envKey, long defaultValue) {
+        String v = getPropOrEnv(p, propKey, envKey, null);
+        if (v == null) return defaultValue;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + propKey + ": " + v + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Any setting from db.properties, else the environment variable, else
+     * defaultValue.
+     */
+    public static String getSetting(String propKey, String envKey, String defaultValue) {
+        return getPropOrEnv(properties, propKey, envKey, defaultValue);
+    }
+
+    /**
+     * Numeric setting; an unparseable value logs a warning and uses defaultValue.
+     */
+    public static long getLongSetting(String propKey, String envKey, long defaultValue) {
+        return getLongPropOrEnv(properties, propKey, envKey, defaultValue);
+    }
+
+    /** mysql or embedded. */
+    public static String getMode() {
+        return mode;
+    }
+
+    public static boolean isEmbedded() {
+        return MODE_EMBEDDED.equals(mode);
+    }
+
+    /** JDBC driver class loaded by DBUtil. */
+    public static String getDriverClass() {
+        return driverClass;
+    }
+
     public static String getUrl() {
         return url;
     }
@@ -86,4 +204,52 @@ public class DatabaseConfig {
     public static String getPassword() {
         return password;
     }
+
+    public static int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    public static int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    /** How long getConnection() waits for a free pooled connection. */
+    public static long getPoolBorrowTimeoutMs() {
+        return poolBorrowTimeoutMs;
+    }
+
+    /** Idle connections above the minimum are closed after this long. */
+    public static long getPoolIdleTimeoutMs() {
+        return poolIdleTimeoutMs;
+    }
+
+    /** Connections held longer than this are reported as possible leaks (0 = off). */
+    public static long getPoolLeakDetectionMs() {
+        return poolLeakDetectionMs;
+    }
+
+    /** Record where each connection was borrowed, for leak reports (debugging only). */
+    public static boolean isPoolLeakTrace() {
+        return poolLeakTrace;
+    }
+
+    public static int getPoolValidationTimeoutSec() {
+        return poolValidationTimeoutSec;
+    }
+
+    /** Prepared statements cached per pooled connection (0 = no caching). */
+    public static int getPoolStatementCacheSize() {
+        return poolStatementCacheSize;
+    }
+
+    /**
+     * Fetch size for streaming reads. Integer.MIN_VALUE is Connector/J's
+     * signal to stream rows one at a time instead of buffering the result.
+     */
+    public static int getStreamFetchSize() {
+        if (streamFetchSize != 0) {
+            return streamFetchSize;
+        }
+        return isEmbedded() ? EMBEDDED_STREAM_FETCH_SIZE : Integer.MIN_VALUE;
+    }
 }
@@ -2,17 +2,26 @@ package com.expensetracker.util;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
  * Creates the database and tables. Uses db.properties or environment variables
  * so it works on any computer without editing source code.
+ *
+ * With db.mode=embedded there is no server to connect to; the embedded
+ * database is created (or opened) in ./data instead.
  */
 public class DatabaseSetup {
 
     public static void main(String[] args) {
+        if (DatabaseConfig.isEmbedded()) {
+            setupEmbedded();
+            return;
+        }
         try {
             System.out.println("Connecting to MySQL server...");
             try (Connection conn = DriverManager.getConnection(
@@ -46,26 +55,48 @@ public class DatabaseSetup {
         }
     }
 
+    private static void setupEmbedded() {
+        System.out.println("Opening embedded database " + DatabaseConfig.getUrl() + "...");
+        try (Connection conn = DBUtil.getConnection();
+                Statement stmt = conn.createStatement()) {
+            System.out.println("Inserting seed user...");
+            stmt.executeUpdate(
+                    "INSERT INTO users (phone_number, name, email) VALUES ('1234567890', 'Test User', 'test@example.com') ON DUPLICATE KEY UPDATE name=name");
+            System.out.println("Embedded database ready.");
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            DBUtil.shutdown();
+        }
+    }
+
     private static void executeSqlScript(Statement stmt, String filePath) throws Exception {
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            StringBuilder sql = new StringBuilder();
+            executeSqlScript(stmt, br);
+        }
+    }
 
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("--") || line.startsWith("//")) {
-                    continue;
-                }
+    /**
+     * Run a ;-terminated SQL script line by line, skipping comment lines.
+     */
+    static void executeSqlScript(Statement stmt, BufferedReader br) throws IOException, SQLException {
+        String line;
+        StringBuilder sql = new StringBuilder();
+
+        while ((line = br.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("--") || line.startsWith("//")) {
+                continue;
+            }
 
-                sql.append(line).append(" ");
+            sql.append(line).append(" ");
 
-                if (line.endsWith(";")) {
-                    String query = sql.toString().replace(";", "").trim();
-                    if (!query.isEmpty()) {
-                        stmt.execute(query);
-                    }
-                    sql.setLength(0);
+            if (line.endsWith(";")) {
+                String query = sql.toString().replace(";", "").trim();
+                if (!query.isEmpty()) {
+                    stmt.execute(query);
                 }
+                sql.setLength(0);
             }
         }
     }
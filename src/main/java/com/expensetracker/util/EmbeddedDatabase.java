@@ -0,0 +1,134 @@
+package com.expensetracker.util;
+
+import org.h2.api.Trigger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded (in-process) database support for db.mode=embedded.
+ *
+ * Runs H2 in MySQL compatibility mode, so the DAOs' SQL (backtick-quoted
+ * `groups`, ENUM columns, ON DUPLICATE KEY UPDATE) works unchanged. Meant for
+ * single-node installs and load tests that should not depend on a MySQL server.
+ *
+ * On first start the tables are created from sql/schema.sql (classpath first,
+ * then the project folder) and the validation triggers from sql/triggers.sql
+ * are installed as H2 Java triggers:
+ * - trg_prevent_self_transaction
+ * - trg_before_expense_update
+ *
+ * The two settlement-maintaining triggers in triggers.sql are intentionally
+ * not installed: the service layer already keeps settlements up to date, as
+ * it does on MySQL where DatabaseSetup only runs schema.sql.
+ */
+public final class EmbeddedDatabase {
+
+    private static final String SCHEMA_RESOURCE = "sql/schema.sql";
+
+    private EmbeddedDatabase() {
+    }
+
+    /**
+     * Create the schema and triggers if this is a fresh database.
+     */
+    public static void initialize(Connection conn) throws SQLException {
+        if (!tableExists(conn, "users")) {
+            System.out.println("Creating embedded database schema...");
+            try (Statement stmt = conn.createStatement();
+                    BufferedReader reader = openSchema()) {
+                DatabaseSetup.executeSqlScript(stmt, reader);
+            } catch (java.io.IOException e) {
+                throw new SQLException("Could not read " + SCHEMA_RESOURCE, e);
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            // Databases created before settlements had a version column
+            stmt.execute("ALTER TABLE settlements ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_prevent_self_transaction "
+                    + "BEFORE INSERT ON transactions FOR EACH ROW CALL \""
+                    + PreventSelfTransaction.class.getName() + "\"");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_before_expense_update "
+                    + "BEFORE UPDATE ON expenses FOR EACH ROW CALL \""
+                    + ValidateExpenseSplit.class.getName() + "\"");
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        // Scope to the current schema; H2 has an INFORMATION_SCHEMA.USERS table too
+        DatabaseMetaData meta = conn.getMetaData();
+        String schema = conn.getSchema();
+        try (ResultSet rs = meta.getTables(null, schema, table, null)) {
+            if (rs.next()) {
+                return true;
+            }
+        }
+        try (ResultSet rs = meta.getTables(null, schema, table.toUpperCase(), null)) {
+            return rs.next();
+        }
+    }
+
+    private static BufferedReader openSchema() throws java.io.IOException {
+        InputStream in = EmbeddedDatabase.class.getClassLoader().getResourceAsStream(SCHEMA_RESOURCE);
+        if (in == null) {
+            File file = new File(SCHEMA_RESOURCE);
+            if (!file.exists()) {
+                throw new java.io.FileNotFoundException(SCHEMA_RESOURCE);
+            }
+            in = new FileInputStream(file);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * trg_prevent_self_transaction: BEFORE INSERT on transactions.
+     * Column order: transaction_id, from_user, to_user, ...
+     */
+    public static class PreventSelfTransaction implements Trigger {
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            if (newRow[1] != null && newRow[1].equals(newRow[2])) {
+                throw new SQLException("Cannot create transaction to yourself", "45000");
+            }
+        }
+    }
+
+    /**
+     * trg_before_expense_update: BEFORE UPDATE on expenses.
+     * Column order: expense_id, group_id, paid_by, amount, ...
+     */
+    public static class ValidateExpenseSplit implements Trigger {
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            int expenseId = ((Number) newRow[0]).intValue();
+            BigDecimal amount = (BigDecimal) newRow[3];
+
+            BigDecimal totalShares;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT COALESCE(SUM(share_amount), 0) FROM expense_participants WHERE expense_id = ?")) {
+                pstmt.setInt(1, expenseId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    totalShares = rs.getBigDecimal(1);
+                }
+            }
+
+            if (totalShares.signum() > 0
+                    && totalShares.subtract(amount).abs().compareTo(new BigDecimal("0.01")) > 0) {
+                throw new SQLException("Participant shares do not sum to expense amount", "45000");
+            }
+        }
+    }
+}
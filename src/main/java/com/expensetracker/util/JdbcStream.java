@@ -0,0 +1,153 @@
+package com.expensetracker.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a query and exposes its rows as a lazily read Stream.
+ *
+ * The statement is forward-only and read-only with the streaming fetch size
+ * from DatabaseConfig, so MySQL sends rows as they are consumed instead of
+ * the driver buffering the whole result in the heap.
+ *
+ * The connection stays borrowed until the stream is closed, so callers must
+ * use try-with-resources:
+ *
+ * <pre>
+ * try (Stream&lt;Expense&gt; expenses = expenseDAO.streamByGroup(groupId)) {
+ *     expenses.forEach(...);
+ * }
+ * </pre>
+ *
+ * - Resources are also released as soon as the last row has been read
+ * - On MySQL no other statement can run on the same connection while a
+ * stream is open; inside TransactionTemplate.inTransaction() finish the
+ * stream before issuing further queries
+ * - Failing to open the query is logged and gives an empty stream, like the
+ * List-returning DAO methods; a failure while reading rows is thrown as an
+ * IllegalStateException
+ */
+public final class JdbcStream {
+
+    /**
+     * Binds parameters to the statement.
+     */
+    @FunctionalInterface
+    public interface ParameterSetter {
+        void setParameters(PreparedStatement pstmt) throws SQLException;
+    }
+
+    /**
+     * Maps the current row to an object.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T mapRow(ResultSet rs) throws SQLException;
+    }
+
+    private JdbcStream() {
+    }
+
+    /**
+     * Run sql and stream the mapped rows.
+     */
+    public static <T> Stream<T> query(String sql, ParameterSetter params, RowMapper<T> mapper) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            conn = DBUtil.getConnection();
+            // Not one of the cached prepareStatement overloads: a streaming
+            // statement must not be handed to another caller half-read
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(DatabaseConfig.getStreamFetchSize());
+            if (params != null) {
+                params.setParameters(pstmt);
+            }
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            closeQuietly(null, pstmt, conn);
+            return Stream.empty();
+        }
+
+        RowSpliterator<T> rows = new RowSpliterator<>(conn, pstmt, rs, mapper);
+        return StreamSupport.stream(rows, false).onClose(rows::close);
+    }
+
+    private static void closeQuietly(ResultSet rs, PreparedStatement pstmt, Connection conn) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+        } catch (SQLException e) {
+            // closing the statement below releases it anyway
+        }
+        try {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+        } catch (SQLException e) {
+            // the connection is returned regardless
+        }
+        try {
+            if (conn != null) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            // returning to the pool does not fail in practice
+        }
+    }
+
+    /**
+     * Reads one row per tryAdvance and closes everything at the end of the
+     * result or when the stream is closed, whichever comes first.
+     */
+    private static class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        RowSpliterator(Connection conn, PreparedStatement pstmt, ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.mapRow(rs));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("Error reading rows: " + e.getMessage(), e);
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                closeQuietly(rs, pstmt, conn);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.expensetracker.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Position in a newest-first listing ordered by (created_at DESC, id DESC).
+ *
+ * The next page is every row strictly after this position:
+ *
+ * <pre>
+ * WHERE created_at &lt; ? OR (created_at = ? AND id &lt; ?)
+ * ORDER BY created_at DESC, id DESC LIMIT ?
+ * </pre>
+ *
+ * With an index on (..., created_at, id) the database seeks straight to the
+ * position, so every page costs the same however deep it is (unlike OFFSET,
+ * which reads and throws away all earlier rows).
+ *
+ * Clients only see the encoded token (URL-safe Base64), which keeps the
+ * format free to change.
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private final Timestamp createdAt;
+    private final int id;
+
+    public PageCursor(Timestamp createdAt, int id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Opaque token for this position. Keeps full nanosecond precision so a
+     * row is never skipped when the column stores fractional seconds.
+     */
+    public String encode() {
+        long seconds = Math.floorDiv(createdAt.getTime(), 1000L);
+        String raw = seconds + ":" + createdAt.getNanos() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a token produced by encode().
+     *
+     * @return the position, or null for a null/empty token (first page)
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Timestamp createdAt = new Timestamp(Long.parseLong(parts[0]) * 1000L);
+            createdAt.setNanos(Integer.parseInt(parts[1]));
+            return new PageCursor(createdAt, Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException and bad Base64
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Clamp a requested page size to 1..MAX_LIMIT (DEFAULT_LIMIT if absent).
+     */
+    public static int clampLimit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,167 @@
+package com.expensetracker.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection.
+ *
+ * The DAOs prepare the same constant SQL on every call. With a cache, the
+ * first prepareStatement() for a SQL string creates the statement and its
+ * close() parks it here; the next call with the same SQL reuses it instead of
+ * asking the server to parse and plan it again.
+ *
+ * Only plain prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys)
+ * are cached; other overloads go straight to the driver.
+ *
+ * Not thread-safe: a pooled connection is only used by one thread at a time.
+ */
+class StatementCache {
+
+    private final int maxSize;
+    private final Stats stats;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+
+    StatementCache(int maxSize, Stats stats) {
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Whether this call can be served from the cache.
+     */
+    static boolean isCacheable(Method method, Object[] args) {
+        if (!"prepareStatement".equals(method.getName()) || args == null) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return (types.length == 1)
+                || (types.length == 2 && types[1] == int.class);
+    }
+
+    /**
+     * Return a cached statement for the call, preparing a new one on a miss.
+     * The returned handle's close() gives the statement back to this cache.
+     */
+    PreparedStatement prepare(Connection physical, Connection logical, Object[] args)
+            throws SQLException {
+        String sql = (String) args[0];
+        int generatedKeys = args.length > 1 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+        String key = generatedKeys + ":" + sql;
+
+        // Take it out while in use so a nested prepare of the same SQL gets its own
+        PreparedStatement stmt = idle.remove(key);
+        if (stmt != null && !stmt.isClosed()) {
+            stats.hits.incrementAndGet();
+        } else {
+            stats.misses.incrementAndGet();
+            stmt = physical.prepareStatement(sql, generatedKeys);
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatementHandler(key, stmt, logical));
+    }
+
+    private void giveBack(String key, PreparedStatement stmt) {
+        try {
+            stmt.clearParameters();
+            stmt.clearBatch();
+            stmt.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(stmt);
+            return;
+        }
+
+        if (idle.containsKey(key)) {
+            closeQuietly(stmt);
+            return;
+        }
+        idle.put(key, stmt);
+
+        if (idle.size() > maxSize) {
+            Iterator<Map.Entry<String, PreparedStatement>> it = idle.entrySet().iterator();
+            closeQuietly(it.next().getValue());
+            it.remove();
+            stats.evictions.incrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // connection is probably gone; nothing to do
+        }
+    }
+
+    /**
+     * Hit/miss counters shared by every connection in a pool.
+     */
+    static class Stats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    /**
+     * Handle returned to the DAO. close() parks the real statement back in
+     * the cache instead of closing it on the server.
+     */
+    private class CachedStatementHandler implements InvocationHandler {
+        private final String key;
+        private final PreparedStatement stmt;
+        private final Connection logical;
+        private boolean closed;
+
+        CachedStatementHandler(String key, PreparedStatement stmt, Connection logical) {
+            this.key = key;
+            this.stmt = stmt;
+            this.logical = logical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(key, stmt);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || stmt.isClosed();
+                case "getConnection":
+                    return logical;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + stmt + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(stmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
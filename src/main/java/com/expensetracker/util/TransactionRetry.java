@@ -0,0 +1,119 @@
+package com.expensetracker.util;
+
+import com.expensetracker.util.TransactionTemplate.TransactionCallback;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransactionTemplate.inTransaction() with a bounded retry.
+ *
+ * A unit of work that lost a race is rolled back and run again from the
+ * start (re-reading whatever it read), up to db.retry.maxAttempts times,
+ * sleeping a random 0..backoff between attempts; the backoff starts at
+ * db.retry.backoffMs and doubles per attempt (capped at one second). Lost
+ * races are:
+ * - ConcurrentUpdateException (an optimistic version check failed)
+ * - deadlocks and serialization failures (SQLState 40001 / 40P01)
+ * - lock wait timeouts (MySQL 1205, H2 50200)
+ *
+ * Other failures are thrown at once. Inside an outer transaction the work
+ * just joins it: only the outermost unit of work can be retried.
+ *
+ * Conflict and retry counts are kept for /api/stats.
+ */
+public final class TransactionRetry {
+
+    private static final int MAX_ATTEMPTS = (int) Math.max(1, DatabaseConfig.getLongSetting(
+            "db.retry.maxAttempts", "EXPENSE_TRACKER_DB_RETRY_MAX_ATTEMPTS", 5));
+    private static final long BACKOFF_MS = Math.max(0, DatabaseConfig.getLongSetting(
+            "db.retry.backoffMs", "EXPENSE_TRACKER_DB_RETRY_BACKOFF_MS", 10));
+    private static final long MAX_BACKOFF_MS = 1000;
+
+    private static final AtomicLong conflicts = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong exhausted = new AtomicLong();
+
+    private TransactionRetry() {
+    }
+
+    /**
+     * Run work in a transaction, retrying it if it lost a race.
+     *
+     * @return whatever the callback returns
+     * @throws RuntimeException the last failure, once attempts are used up
+     */
+    public static <T> T inTransaction(TransactionCallback<T> work) {
+        if (TransactionTemplate.isActive()) {
+            return TransactionTemplate.inTransaction(work);
+        }
+
+        long backoff = BACKOFF_MS;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return TransactionTemplate.inTransaction(work);
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.incrementAndGet();
+                if (attempt >= MAX_ATTEMPTS) {
+                    exhausted.incrementAndGet();
+                    throw e;
+                }
+            }
+
+            retries.incrementAndGet();
+            if (backoff > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while retrying transaction", interrupted);
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * Whether a failure means the work lost a race and may succeed if rerun.
+     */
+    static boolean isConflict(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrentUpdateException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                SQLException sql = (SQLException) t;
+                String state = sql.getSQLState();
+                if ("40001".equals(state) || "40P01".equals(state)
+                        || sql.getErrorCode() == 1205 || sql.getErrorCode() == 50200) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // ==================== STATS ====================
+
+    /** Units of work that failed because they lost a race */
+    public static long getConflicts() {
+        return conflicts.get();
+    }
+
+    /** Reruns after a conflict */
+    public static long getRetries() {
+        return retries.get();
+    }
+
+    /** Units of work that still conflicted on the last attempt */
+    public static long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,278 @@
+package com.expensetracker.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit-of-work helper for service methods.
+ *
+ * inTransaction() borrows one pooled connection, turns off auto-commit and
+ * binds it to the current thread. Every DBUtil.getConnection() made by a DAO
+ * inside the callback gets that same connection, so all statements commit
+ * together (one commit instead of one per statement) or roll back together.
+ *
+ * USAGE:
+ *
+ * <pre>
+ * Expense saved = TransactionTemplate.inTransaction(() -> {
+ *     int id = expenseDAO.insert(expense);
+ *     participantDAO.insert(...);
+ *     return expense;
+ * });
+ * </pre>
+ *
+ * - Nested calls join the outer transaction
+ * - The DAOs log and swallow SQLExceptions, so any statement failure inside
+ * the scope marks the transaction rollback-only; it is then rolled back and
+ * an IllegalStateException is thrown instead of committing partial work
+ * - onCommit()/onCompletion() register work to run after the outermost
+ * transaction commits / finishes either way (e.g. updating in-memory state
+ * only once the database change is durable)
+ */
+public final class TransactionTemplate {
+
+    /**
+     * Work to run inside a transaction.
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T doInTransaction();
+    }
+
+    private static final ThreadLocal<TransactionContext> CURRENT = new ThreadLocal<>();
+
+    private TransactionTemplate() {
+    }
+
+    /**
+     * Run work in a transaction, joining the current one if there is one.
+     *
+     * @return whatever the callback returns
+     * @throws IllegalStateException if a statement failed and the work was rolled back
+     */
+    public static <T> T inTransaction(TransactionCallback<T> work) {
+        TransactionContext existing = CURRENT.get();
+        if (existing != null) {
+            try {
+                return work.doInTransaction();
+            } catch (RuntimeException | Error e) {
+                existing.rollbackOnly = true;
+                throw e;
+            }
+        }
+
+        Connection physical;
+        try {
+            physical = DBUtil.getPool().borrow();
+            physical.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start transaction: " + e.getMessage(), e);
+        }
+
+        TransactionContext context = new TransactionContext(physical);
+        CURRENT.set(context);
+        try {
+            T result;
+            try {
+                result = work.doInTransaction();
+            } catch (RuntimeException | Error e) {
+                rollbackQuietly(physical);
+                throw e;
+            }
+
+            if (context.rollbackOnly) {
+                rollbackQuietly(physical);
+                throw new IllegalStateException("Transaction rolled back: "
+                        + (context.failure != null ? context.failure.getMessage() : "statement failed"),
+                        context.failure);
+            }
+
+            try {
+                physical.commit();
+            } catch (SQLException e) {
+                rollbackQuietly(physical);
+                throw new IllegalStateException("Commit failed: " + e.getMessage(), e);
+            }
+            runHooks(context.commitHooks);
+            return result;
+        } finally {
+            CURRENT.remove();
+            try {
+                physical.setAutoCommit(true);
+            } catch (SQLException e) {
+                // the pool resets or discards the connection on return anyway
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // returning to the pool does not fail in practice
+            }
+            runHooks(context.completionHooks);
+        }
+    }
+
+    /**
+     * Run action after the current transaction commits; it is dropped if the
+     * transaction rolls back. Outside a transaction the caller's statements
+     * have already auto-committed, so it runs immediately.
+     */
+    public static void onCommit(Runnable action) {
+        TransactionContext context = CURRENT.get();
+        if (context == null) {
+            action.run();
+        } else {
+            context.commitHooks.add(action);
+        }
+    }
+
+    /**
+     * Run action when the current transaction ends, after any onCommit()
+     * actions, whether it committed or rolled back. Outside a transaction it
+     * runs immediately.
+     */
+    public static void onCompletion(Runnable action) {
+        TransactionContext context = CURRENT.get();
+        if (context == null) {
+            action.run();
+        } else {
+            context.completionHooks.add(action);
+        }
+    }
+
+    /**
+     * Whether the current thread is inside inTransaction().
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * The connection bound to this thread, or null outside a transaction.
+     * Closing it is a no-op; the transaction owns it.
+     */
+    static Connection boundConnection() {
+        TransactionContext context = CURRENT.get();
+        return context != null ? context.handle : null;
+    }
+
+    private static void runHooks(List<Runnable> hooks) {
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                // the transaction is already finished; one bad hook must not
+                // stop the others
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Rollback failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * State of the transaction running on one thread.
+     */
+    private static class TransactionContext {
+        final Connection handle;
+        volatile boolean rollbackOnly;
+        volatile SQLException failure;
+        final List<Runnable> commitHooks = new ArrayList<>();
+        final List<Runnable> completionHooks = new ArrayList<>();
+
+        TransactionContext(Connection physical) {
+            this.handle = (Connection) Proxy.newProxyInstance(
+                    TransactionTemplate.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new FailureTrackingHandler(this, physical, true));
+        }
+
+        void markFailed(SQLException e) {
+            rollbackOnly = true;
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Wraps the bound connection and the statements it creates. close(),
+     * commit() and setAutoCommit() on the connection are ignored because the
+     * template controls them; any SQLException marks the transaction
+     * rollback-only before it reaches the DAO.
+     */
+    private static class FailureTrackingHandler implements InvocationHandler {
+        private final TransactionContext context;
+        private final Object target;
+        private final boolean isConnection;
+
+        FailureTrackingHandler(TransactionContext context, Object target, boolean isConnection) {
+            this.context = context;
+            this.target = target;
+            this.isConnection = isConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (isConnection) {
+                switch (name) {
+                    case "close":
+                    case "commit":
+                    case "setAutoCommit":
+                        return null;
+                    case "rollback":
+                        if (args == null) {
+                            context.rollbackOnly = true;
+                            return null;
+                        }
+                        break;
+                    case "isClosed":
+                        return false;
+                    default:
+                        break;
+                }
+            } else if ("getConnection".equals(name)) {
+                return context.handle;
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    context.markFailed((SQLException) cause);
+                }
+                throw cause;
+            }
+
+            if (isConnection && result instanceof Statement) {
+                Class<?> type = method.getReturnType();
+                return Proxy.newProxyInstance(
+                        TransactionTemplate.class.getClassLoader(),
+                        new Class<?>[] { type },
+                        new FailureTrackingHandler(context, result, false));
+            }
+            return result;
+        }
+    }
+}
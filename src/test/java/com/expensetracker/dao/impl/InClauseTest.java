@@ -0,0 +1,43 @@
+package com.expensetracker.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class InClauseTest {
+
+    @Test
+    void padsToThePowerOfTwoAbove() {
+        assertEquals(1, InClause.paddedSize(0));
+        assertEquals(1, InClause.paddedSize(1));
+        assertEquals(2, InClause.paddedSize(2));
+        assertEquals(8, InClause.paddedSize(7));
+        assertEquals(8, InClause.paddedSize(8));
+        assertEquals(16, InClause.paddedSize(9));
+    }
+
+    @Test
+    void neverPadsPastTheChunkSize() {
+        assertEquals(InClause.CHUNK_SIZE, InClause.paddedSize(InClause.CHUNK_SIZE - 1));
+        assertEquals(InClause.CHUNK_SIZE, InClause.paddedSize(InClause.CHUNK_SIZE));
+        assertEquals(InClause.CHUNK_SIZE, InClause.paddedSize(InClause.CHUNK_SIZE + 1));
+    }
+
+    @Test
+    void onlyAFewShapesForAllChunkSizes() {
+        Set<Integer> shapes = new HashSet<>();
+        for (int n = 1; n <= InClause.CHUNK_SIZE; n++) {
+            shapes.add(InClause.paddedSize(n));
+        }
+        assertEquals(10, shapes.size()); // 1, 2, 4, ..., 512
+    }
+
+    @Test
+    void buildsPlaceholderList() {
+        assertEquals("", InClause.placeholders(0));
+        assertEquals("?", InClause.placeholders(1));
+        assertEquals("?, ?, ?", InClause.placeholders(3));
+    }
+}
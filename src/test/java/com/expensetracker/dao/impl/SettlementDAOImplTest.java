@@ -0,0 +1,152 @@
+package com.expensetracker.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.Settlement.SettlementStatus;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.TestDatabase;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * applyDeltas() against the in-memory H2 database (MySQL mode).
+ */
+class SettlementDAOImplTest {
+
+    private final SettlementDAOImpl dao = new SettlementDAOImpl();
+    private int groupId;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(4);
+        groupId = TestDatabase.createGroup("trip", "u0", "u1", "u2", "u3");
+    }
+
+    @Test
+    void newSharesInsertPendingRowsAndSumPerPair() {
+        assertTrue(dao.applyDeltas(groupId, Arrays.asList(
+                delta("u1", "u0", "10.00"),
+                delta("u2", "u0", "5.00"),
+                delta("u1", "u0", "2.50"))));
+
+        assertRow("u1", "u0", "12.50", SettlementStatus.PENDING);
+        assertRow("u2", "u0", "5.00", SettlementStatus.PENDING);
+        assertEquals(2, dao.findByGroup(groupId).size());
+    }
+
+    @Test
+    void paymentsReduceTheBalance() {
+        dao.applyDeltas(groupId, Arrays.asList(delta("u1", "u0", "30.00"), delta("u2", "u0", "20.00")));
+
+        dao.applyDeltas(groupId, Arrays.asList(delta("u1", "u0", "-10.00"), delta("u2", "u0", "-20.00")));
+
+        assertRow("u1", "u0", "20.00", SettlementStatus.PARTIAL);
+        assertRow("u2", "u0", "0.00", SettlementStatus.SETTLED);
+        assertNull(dao.findByUsers(groupId, "u0", "u1"));
+        assertNull(dao.findByUsers(groupId, "u0", "u2"));
+    }
+
+    @Test
+    void overpaymentBecomesADebtTheOtherWay() {
+        dao.applyDeltas(groupId, Collections.singletonList(delta("u1", "u0", "10.00")));
+
+        dao.applyDeltas(groupId, Collections.singletonList(delta("u1", "u0", "-25.00")));
+
+        assertRow("u1", "u0", "0.00", SettlementStatus.SETTLED);
+        assertRow("u0", "u1", "15.00", SettlementStatus.PENDING);
+        Map<String, BigDecimal> nets = dao.netBalancesByGroup(groupId);
+        assertAmount("15.00", nets.get("u1"));
+        assertAmount("-15.00", nets.get("u0"));
+    }
+
+    @Test
+    void paymentWithoutADebtIsOwedBack() {
+        dao.applyDeltas(groupId, Collections.singletonList(delta("u2", "u3", "-7.00")));
+
+        assertRow("u2", "u3", "0.00", SettlementStatus.SETTLED);
+        assertRow("u3", "u2", "7.00", SettlementStatus.PENDING);
+    }
+
+    @Test
+    void overpaymentAddsToAnExistingReverseDebt() {
+        dao.applyDeltas(groupId, Arrays.asList(delta("u1", "u0", "10.00"), delta("u0", "u1", "4.00")));
+
+        dao.applyDeltas(groupId, Collections.singletonList(delta("u1", "u0", "-12.00")));
+
+        assertRow("u1", "u0", "0.00", SettlementStatus.SETTLED);
+        assertRow("u0", "u1", "6.00", SettlementStatus.PENDING);
+    }
+
+    @Test
+    void overpaymentsInBothDirectionsSwapTheDebts() {
+        dao.applyDeltas(groupId, Arrays.asList(delta("u1", "u0", "10.00"), delta("u0", "u1", "4.00")));
+
+        dao.applyDeltas(groupId, Arrays.asList(delta("u1", "u0", "-13.00"), delta("u0", "u1", "-9.00")));
+
+        // u1 overpaid by 3 and u0 by 5: each now owes the other that much
+        assertRow("u1", "u0", "5.00", SettlementStatus.PENDING);
+        assertRow("u0", "u1", "3.00", SettlementStatus.PENDING);
+        assertAmount("-2.00", dao.netBalancesByGroup(groupId).get("u1"));
+    }
+
+    @Test
+    void appliesManyGroupsAndChunksInOneCall() {
+        TestDatabase.reset(40);
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            members.add("u" + i);
+        }
+        int first = TestDatabase.createGroup("big", members.toArray(new String[0]));
+        int second = TestDatabase.createGroup("small", "u0", "u1");
+
+        // 40 * 39 = 1560 pairs: more than one upsert chunk
+        List<SettlementDelta> shares = new ArrayList<>();
+        for (String from : members) {
+            for (String to : members) {
+                if (!from.equals(to)) {
+                    shares.add(delta(from, to, "1.25"));
+                }
+            }
+        }
+        Map<Integer, List<SettlementDelta>> deltasByGroup = new HashMap<>();
+        deltasByGroup.put(first, shares);
+        deltasByGroup.put(second, Collections.singletonList(delta("u0", "u1", "3.00")));
+
+        assertTrue(dao.applyDeltas(deltasByGroup));
+
+        List<Settlement> rows = dao.findByGroup(first);
+        assertEquals(1560, rows.size());
+        for (Settlement row : rows) {
+            assertAmount("1.25", row.getNetBalance());
+            assertEquals(SettlementStatus.PENDING, row.getStatus());
+        }
+        assertEquals(1, dao.findByGroup(second).size());
+        assertTrue(dao.netBalancesByGroup(first).values().stream().allMatch(net -> net.signum() == 0));
+    }
+
+    private void assertRow(String from, String to, String amount, SettlementStatus status) {
+        Settlement row = dao.findByUsers(groupId, from, to);
+        assertNotNull(row, "no row " + from + " -> " + to);
+        assertAmount(amount, row.getNetBalance());
+        assertEquals(status, row.getStatus(), from + " -> " + to);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " vs " + actual);
+    }
+
+    private static SettlementDelta delta(String from, String to, String amount) {
+        return new SettlementDelta(from, to, new BigDecimal(amount));
+    }
+}
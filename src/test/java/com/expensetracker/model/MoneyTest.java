@@ -0,0 +1,97 @@
+package com.expensetracker.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void roundsHalfUpToWholeCents() {
+        assertEquals(1001, Money.of(new BigDecimal("10.005")).getCents());
+        assertEquals(1000, Money.of(new BigDecimal("10.004")).getCents());
+        assertEquals(-1001, Money.of(new BigDecimal("-10.005")).getCents());
+        assertEquals(1200, Money.of(new BigDecimal("12")).getCents());
+    }
+
+    @Test
+    void convertsBackWithScaleTwo() {
+        assertEquals(new BigDecimal("12.30"), Money.ofCents(1230).toBigDecimal());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertSame(Money.ZERO, Money.ofCents(0));
+    }
+
+    @Test
+    void arithmeticThrowsOnOverflow() {
+        assertEquals(Money.ofCents(150), Money.ofCents(100).plus(Money.ofCents(50)));
+        assertEquals(Money.ofCents(-50), Money.ofCents(50).minus(Money.ofCents(100)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+    }
+
+    @Test
+    void splitGivesLeftoverCentsToFirstShares() {
+        assertArrayEquals(cents(3334, 3333, 3333), Money.ofCents(10000).split(3));
+        assertArrayEquals(cents(-3334, -3333, -3333), Money.ofCents(-10000).split(3));
+        assertArrayEquals(cents(1, 1, 0, 0), Money.ofCents(2).split(4));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).split(0));
+    }
+
+    @Test
+    void allocateUsesLargestRemainder() {
+        // 10.00 by 1:1:1 -> 3.34 goes to the first of the tied remainders
+        assertArrayEquals(cents(334, 333, 333), Money.ofCents(1000).allocate(1, 1, 1));
+        // 1.00 by 3:7 is exact
+        assertArrayEquals(cents(30, 70), Money.ofCents(100).allocate(3, 7));
+        // 0.05 by 1:2 -> 1.67 / 3.33 cents; the larger remainder gets the cent
+        assertArrayEquals(cents(2, 3), Money.ofCents(5).allocate(1, 2));
+        assertArrayEquals(cents(0, -100), Money.ofCents(-100).allocate(0, 5));
+    }
+
+    @Test
+    void allocateRejectsBadWeights() {
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).allocate());
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).allocate(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).allocate(0, 0));
+    }
+
+    @Test
+    void sharesAlwaysAddUpToTheAmount() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long amount = random.nextInt(2_000_000) - 1_000_000;
+            Money total = Money.ofCents(amount);
+
+            long sum = 0;
+            for (Money share : total.split(1 + random.nextInt(12))) {
+                sum += share.getCents();
+            }
+            assertEquals(amount, sum);
+
+            long[] weights = new long[1 + random.nextInt(8)];
+            weights[0] = 1;
+            for (int w = 1; w < weights.length; w++) {
+                weights[w] = random.nextInt(1000);
+            }
+            sum = 0;
+            for (Money share : total.allocate(weights)) {
+                sum += share.getCents();
+            }
+            assertEquals(amount, sum);
+        }
+    }
+
+    private static Money[] cents(long... values) {
+        Money[] result = new Money[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Money.ofCents(values[i]);
+        }
+        return result;
+    }
+}
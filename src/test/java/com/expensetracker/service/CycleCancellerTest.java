@@ -0,0 +1,135 @@
+package com.expensetracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.expensetracker.model.Money;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class CycleCancellerTest {
+
+    @Test
+    void cancelsTheSmallestEdgeOfATriangle() {
+        List<Settlement> rows = Arrays.asList(
+                row("a", "b", "100.00"),
+                row("b", "c", "60.00"),
+                row("c", "a", "80.00"));
+
+        CycleCanceller.Plan plan = CycleCanceller.cancel(rows);
+
+        assertEquals(1, plan.getCycles());
+        assertEquals(3, plan.getEdgesBefore());
+        assertEquals(1, plan.getEdgesClosed());
+        assertEquals(Money.ofCents(18000), plan.getAmountCancelled());
+        Map<String, BigDecimal> after = applyPlan(rows, plan);
+        assertEquals(new BigDecimal("40.00"), after.get("a>b"));
+        assertEquals(new BigDecimal("20.00"), after.get("c>a"));
+        assertEquals(2, after.size());
+    }
+
+    @Test
+    void cancelsDebtsInBothDirections() {
+        List<Settlement> rows = Arrays.asList(row("a", "b", "10.00"), row("b", "a", "4.00"));
+
+        CycleCanceller.Plan plan = CycleCanceller.cancel(rows);
+
+        assertEquals(1, plan.getCycles());
+        Map<String, BigDecimal> after = applyPlan(rows, plan);
+        assertEquals(new BigDecimal("6.00"), after.get("a>b"));
+        assertEquals(1, after.size());
+    }
+
+    @Test
+    void leavesAcyclicDebtsAlone() {
+        List<Settlement> rows = Arrays.asList(
+                row("a", "b", "10.00"),
+                row("b", "c", "5.00"),
+                row("a", "c", "7.00"),
+                row("c", "c", "3.00"),
+                row("c", "a", "0.00"));
+
+        CycleCanceller.Plan plan = CycleCanceller.cancel(rows);
+
+        assertEquals(0, plan.getCycles());
+        assertTrue(plan.getDeltas().isEmpty());
+        assertEquals(Money.ZERO, plan.getAmountCancelled());
+    }
+
+    @Test
+    void keepsNetBalancesAndLeavesNoCycle() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int n = 2 + random.nextInt(8);
+            List<Settlement> rows = new ArrayList<>();
+            Set<String> pairs = new HashSet<>();
+            for (int k = random.nextInt(n * n); k > 0; k--) {
+                int from = random.nextInt(n);
+                int to = random.nextInt(n);
+                if (from != to && pairs.add(from + ">" + to)) {
+                    rows.add(new Settlement(1, "u" + from, "u" + to,
+                            BigDecimal.valueOf(1 + random.nextInt(50_000), 2)));
+                }
+            }
+
+            CycleCanceller.Plan plan = CycleCanceller.cancel(rows);
+            Map<String, BigDecimal> after = applyPlan(rows, plan);
+            List<Settlement> remaining = new ArrayList<>();
+            for (Map.Entry<String, BigDecimal> edge : after.entrySet()) {
+                String[] users = edge.getKey().split(">");
+                remaining.add(new Settlement(1, users[0], users[1], edge.getValue()));
+            }
+
+            assertEquals(nets(rows), nets(remaining));
+            assertEquals(rows.size() - remaining.size(), plan.getEdgesClosed());
+            assertEquals(0, CycleCanceller.cancel(remaining).getCycles());
+            // Same rows, same plan
+            assertEquals(plan.getDeltas().toString(), CycleCanceller.cancel(rows).getDeltas().toString());
+        }
+    }
+
+    private static Settlement row(String from, String to, String amount) {
+        return new Settlement(1, from, to, new BigDecimal(amount));
+    }
+
+    /**
+     * Edge amounts after the plan's deltas; edges that reach zero are left
+     * out and none may go negative.
+     */
+    private static Map<String, BigDecimal> applyPlan(List<Settlement> rows, CycleCanceller.Plan plan) {
+        Map<String, BigDecimal> edges = new TreeMap<>();
+        for (Settlement s : rows) {
+            if (s.getNetBalance().signum() > 0 && !s.getFromUser().equals(s.getToUser())) {
+                edges.merge(s.getFromUser() + ">" + s.getToUser(), s.getNetBalance(), BigDecimal::add);
+            }
+        }
+        for (SettlementDelta delta : plan.getDeltas()) {
+            assertTrue(delta.getAmount().signum() < 0, delta.toString());
+            edges.merge(delta.getFromUser() + ">" + delta.getToUser(), delta.getAmount(), BigDecimal::add);
+        }
+        edges.values().forEach(amount -> assertTrue(amount.signum() >= 0, edges.toString()));
+        edges.values().removeIf(amount -> amount.signum() == 0);
+        return edges;
+    }
+
+    private static Map<String, Long> nets(List<Settlement> rows) {
+        Map<String, Long> nets = new TreeMap<>();
+        for (Settlement s : rows) {
+            long cents = Money.of(s.getNetBalance()).getCents();
+            nets.merge(s.getFromUser(), -cents, Long::sum);
+            nets.merge(s.getToUser(), cents, Long::sum);
+        }
+        nets.values().removeIf(net -> net == 0);
+        return nets;
+    }
+}
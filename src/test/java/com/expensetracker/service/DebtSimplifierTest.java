@@ -0,0 +1,124 @@
+package com.expensetracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class DebtSimplifierTest {
+
+    private static final long BUDGET = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    void greedySettlesEveryoneInAtMostNMinusOneTransfers() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            Map<String, Long> nets = randomNets(random, 2 + random.nextInt(30));
+            List<DebtSimplifier.Transfer> plan = DebtSimplifier.simplify(nets);
+            assertSettles(nets, plan);
+            assertTrue(plan.size() <= nets.size() - 1);
+        }
+    }
+
+    @Test
+    void planDoesNotDependOnMapOrder() {
+        Map<String, Long> sorted = new TreeMap<>();
+        sorted.put("u1", 500L);
+        sorted.put("u2", 500L);
+        sorted.put("u3", -500L);
+        sorted.put("u4", -500L);
+        Map<String, Long> reversed = new LinkedHashMap<>();
+        reversed.put("u4", -500L);
+        reversed.put("u3", -500L);
+        reversed.put("u2", 500L);
+        reversed.put("u1", 500L);
+
+        assertEquals(DebtSimplifier.simplify(sorted).toString(), DebtSimplifier.simplify(reversed).toString());
+        assertEquals(DebtSimplifier.simplifyOptimal(sorted, 20, BUDGET).toString(),
+                DebtSimplifier.simplifyOptimal(reversed, 20, BUDGET).toString());
+    }
+
+    @Test
+    void optimalSettlesZeroSumSubsetsSeparately() {
+        // {a, c, f} and {b, d, e} each net to zero: 2 + 2 transfers, where
+        // greedy needs 5
+        Map<String, Long> nets = new HashMap<>();
+        nets.put("a", -1L);
+        nets.put("b", 7L);
+        nets.put("c", 9L);
+        nets.put("d", 3L);
+        nets.put("e", -10L);
+        nets.put("f", -8L);
+
+        assertEquals(5, DebtSimplifier.simplify(nets).size());
+        List<DebtSimplifier.Transfer> plan = DebtSimplifier.simplifyOptimal(nets, 20, BUDGET);
+        assertSettles(nets, plan);
+        assertEquals(4, plan.size());
+    }
+
+    @Test
+    void optimalNeverUsesMoreTransfersThanGreedy() {
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            Map<String, Long> nets = randomNets(random, 2 + random.nextInt(9));
+            List<DebtSimplifier.Transfer> plan = DebtSimplifier.simplifyOptimal(nets, 20, BUDGET);
+            assertSettles(nets, plan);
+            assertTrue(plan.size() <= DebtSimplifier.simplify(nets).size());
+        }
+    }
+
+    @Test
+    void fallsBackToGreedyWhenTooLargeOrOutOfBudget() {
+        Map<String, Long> nets = randomNets(new Random(3), DebtSimplifier.MAX_EXACT_MEMBERS + 3);
+        String greedy = DebtSimplifier.simplify(nets).toString();
+
+        assertEquals(greedy, DebtSimplifier.simplifyOptimal(nets, 3, BUDGET).toString());
+        assertEquals(greedy, DebtSimplifier.simplifyOptimal(nets, 100, BUDGET).toString());
+        assertEquals(greedy, DebtSimplifier.simplifyOptimal(nets, 20, 0).toString());
+    }
+
+    @Test
+    void emptyAndSettledGroupsNeedNoTransfers() {
+        Map<String, Long> nets = new HashMap<>();
+        assertTrue(DebtSimplifier.simplify(nets).isEmpty());
+        nets.put("u1", 0L);
+        nets.put("u2", 0L);
+        assertTrue(DebtSimplifier.simplify(nets).isEmpty());
+        assertTrue(DebtSimplifier.simplifyOptimal(nets, 20, BUDGET).isEmpty());
+    }
+
+    /**
+     * Balances in cents for n members that sum to zero; only the last one
+     * can cancel out another member (the rest differ in their last digits).
+     */
+    private static Map<String, Long> randomNets(Random random, int n) {
+        Map<String, Long> nets = new HashMap<>();
+        long sum = 0;
+        for (int i = 0; i < n - 1; i++) {
+            long net = (random.nextBoolean() ? 1 : -1) * ((1 + random.nextInt(100_000)) * 1000L + i);
+            nets.put("u" + i, net);
+            sum += net;
+        }
+        nets.put("u" + (n - 1), -sum);
+        return nets;
+    }
+
+    private static void assertSettles(Map<String, Long> nets, List<DebtSimplifier.Transfer> plan) {
+        Map<String, Long> left = new HashMap<>(nets);
+        for (DebtSimplifier.Transfer transfer : plan) {
+            assertTrue(transfer.getAmountCents() > 0, transfer.toString());
+            left.merge(transfer.getFromUser(), transfer.getAmountCents(), Long::sum);
+            left.merge(transfer.getToUser(), -transfer.getAmountCents(), Long::sum);
+        }
+        for (Map.Entry<String, Long> entry : left.entrySet()) {
+            assertEquals(0L, entry.getValue(), entry.getKey() + " not settled by " + plan);
+        }
+    }
+}
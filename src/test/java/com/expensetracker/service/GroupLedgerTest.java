@@ -0,0 +1,235 @@
+package com.expensetracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.model.Money;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.TestDatabase;
+import com.expensetracker.util.TransactionTemplate;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * GroupLedger against the in-memory H2 database: the cached copy must read
+ * the same as the settlements table.
+ */
+class GroupLedgerTest {
+
+    private final RacingDAO dao = new RacingDAO();
+    private GroupLedger ledger;
+    private int groupId;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(4);
+        groupId = TestDatabase.createGroup("trip", "u0", "u1", "u2", "u3");
+        ledger = new GroupLedger(dao, true, 100, null);
+    }
+
+    @Test
+    void appliedDeltasReadTheSameAsTheTable() {
+        write(ledger, delta("u1", "u0", "30.00"), delta("u2", "u0", "20.00"), delta("u3", "u1", "5.00"));
+        assertMatchesTable(ledger);
+        assertEquals(1, ledger.getCachedGroups());
+
+        // Partial payment, full payment, then a new share on a settled pair
+        write(ledger, delta("u1", "u0", "-10.00"), delta("u2", "u0", "-20.00"));
+        assertMatchesTable(ledger);
+        write(ledger, delta("u2", "u0", "4.50"));
+        assertMatchesTable(ledger);
+
+        // Overpayment flips to a debt the other way
+        write(ledger, delta("u3", "u1", "-12.00"));
+        assertMatchesTable(ledger);
+        // ...and overpayments in both directions swap the debts
+        write(ledger, delta("u1", "u0", "-25.00"), delta("u1", "u3", "-9.00"));
+        assertMatchesTable(ledger);
+
+        // Everything above was served from the one load
+        assertEquals(1, ledger.getLoads());
+    }
+
+    @Test
+    void loadRacingAWriteIsNotCached() {
+        write(ledger, delta("u1", "u0", "30.00"));
+        ledger.invalidate(groupId);
+
+        // The write commits after the rows were read, before they are cached
+        dao.afterFind.set(() -> CompletableFuture.runAsync(
+                () -> write(ledger, delta("u1", "u0", "-10.00"))).join());
+        assertAmount("30.00", ledger.netBalances(groupId).get("u0"));
+        assertEquals(0, ledger.getCachedGroups());
+
+        assertAmount("20.00", ledger.netBalances(groupId).get("u0"));
+        assertEquals(1, ledger.getCachedGroups());
+        assertMatchesTable(ledger);
+    }
+
+    @Test
+    void loadDuringAnOpenWriteIsNotCached() {
+        write(ledger, delta("u1", "u0", "30.00"));
+        ledger.invalidate(groupId);
+
+        CompletableFuture<Void> recorded = new CompletableFuture<>();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> TransactionTemplate.inTransaction(() -> {
+            List<SettlementDelta> deltas = Collections.singletonList(delta("u2", "u0", "7.00"));
+            dao.applyDeltas(groupId, deltas);
+            ledger.recordDeltas(groupId, deltas);
+            recorded.complete(null);
+            return release.join();
+        }));
+        recorded.join();
+
+        assertAmount("30.00", ledger.netBalances(groupId).get("u0"));
+        assertEquals(0, ledger.getCachedGroups());
+
+        release.complete(null);
+        writer.join();
+        assertAmount("37.00", ledger.netBalances(groupId).get("u0"));
+        assertEquals(1, ledger.getCachedGroups());
+    }
+
+    @Test
+    void snapshotRestoresAGroupWithoutReadingItsRows() {
+        File file = dir.resolve("ledger.snapshot").toFile();
+        GroupLedger before = new GroupLedger(dao, true, 100, file);
+        write(before, delta("u1", "u0", "30.00"), delta("u2", "u3", "8.00"));
+        write(before, delta("u1", "u0", "-35.00"));
+        before.netBalances(groupId);
+        before.saveSnapshot();
+
+        GroupLedger after = new GroupLedger(dao, true, 100, file);
+        assertMatchesTable(after);
+        assertEquals(0, after.getLoads());
+        assertEquals(1, after.getCachedGroups());
+    }
+
+    @Test
+    void staleSnapshotIsReloadedFromTheTable() {
+        File file = dir.resolve("ledger.snapshot").toFile();
+        GroupLedger before = new GroupLedger(dao, true, 100, file);
+        write(before, delta("u1", "u0", "30.00"));
+        before.netBalances(groupId);
+        before.saveSnapshot();
+
+        // Written while the app was down (or by another instance)
+        dao.applyDeltas(groupId, Collections.singletonList(delta("u1", "u0", "-10.00")));
+
+        GroupLedger after = new GroupLedger(dao, true, 100, file);
+        assertAmount("20.00", after.netBalances(groupId).get("u0"));
+        assertEquals(1, after.getLoads());
+    }
+
+    @Test
+    void snapshotWithABadChecksumIsReloadedFromTheTable() throws Exception {
+        File file = dir.resolve("ledger.snapshot").toFile();
+        GroupLedger before = new GroupLedger(dao, true, 100, file);
+        write(before, delta("u1", "u0", "30.00"));
+        before.netBalances(groupId);
+        before.saveSnapshot();
+
+        // Row count of the first group: after magic, version, flag and id
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(13);
+            raf.writeInt(2);
+        }
+
+        GroupLedger after = new GroupLedger(dao, true, 100, file);
+        assertMatchesTable(after);
+        assertEquals(1, after.getLoads());
+    }
+
+    @Test
+    void unrecognizedSnapshotIsIgnored() throws Exception {
+        File file = dir.resolve("ledger.snapshot").toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0x12345678);
+        }
+        write(ledger, delta("u1", "u0", "30.00"));
+
+        GroupLedger after = new GroupLedger(dao, true, 100, file);
+        assertMatchesTable(after);
+        assertEquals(1, after.getLoads());
+    }
+
+    private void write(GroupLedger target, SettlementDelta... deltas) {
+        List<SettlementDelta> list = Arrays.asList(deltas);
+        TransactionTemplate.inTransaction(() -> {
+            dao.applyDeltas(groupId, list);
+            target.recordDeltas(groupId, list);
+            return null;
+        });
+    }
+
+    private void assertMatchesTable(GroupLedger target) {
+        Map<String, BigDecimal> nets = target.netBalances(groupId);
+        assertNotNull(nets);
+        assertEquals(cents(dao.netBalancesByGroup(groupId)), cents(nets));
+        assertEquals(rows(dao.findPendingByGroup(groupId)), rows(target.pendingSettlements(groupId)));
+    }
+
+    // Nets in cents, members at zero left out
+    private static Map<String, Long> cents(Map<String, BigDecimal> nets) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, BigDecimal> entry : nets.entrySet()) {
+            long value = Money.of(entry.getValue()).getCents();
+            if (value != 0) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, String> rows(List<Settlement> settlements) {
+        Map<String, String> result = new TreeMap<>();
+        for (Settlement s : settlements) {
+            result.put(s.getFromUser() + ">" + s.getToUser(),
+                    Money.of(s.getNetBalance()).getCents() + " " + s.getStatus());
+        }
+        return result;
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " vs " + actual);
+    }
+
+    private static SettlementDelta delta(String from, String to, String amount) {
+        return new SettlementDelta(from, to, new BigDecimal(amount));
+    }
+
+    /**
+     * Runs a hook (once) right after reading a group's rows.
+     */
+    private static class RacingDAO extends SettlementDAOImpl {
+        final AtomicReference<Runnable> afterFind = new AtomicReference<>();
+
+        @Override
+        public List<Settlement> findByGroup(int groupId) {
+            List<Settlement> rows = super.findByGroup(groupId);
+            Runnable hook = afterFind.getAndSet(null);
+            if (hook != null) {
+                hook.run();
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.expensetracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.util.TestDatabase;
+import com.expensetracker.util.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * GroupWriteQueue against the in-memory H2 database: ordering, batching and
+ * per-command failures.
+ */
+class GroupWriteQueueTest {
+
+    private final SettlementDAOImpl dao = new SettlementDAOImpl();
+    private final SettlementWriter writer = new SettlementWriter(dao);
+    private GroupWriteQueue queue;
+    private int groupId;
+    private int otherGroupId;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(4);
+        groupId = TestDatabase.createGroup("flat", "u0", "u1", "u2");
+        otherGroupId = TestDatabase.createGroup("trip", "u0", "u3");
+        queue = GroupWriteQueue.getInstance();
+    }
+
+    @AfterAll
+    static void stopWorkers() {
+        GroupWriteQueue.shutdown();
+    }
+
+    @Test
+    void commandsOfAGroupRunInSubmissionOrder() {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            futures.add(queue.submit(groupId, () -> {
+                order.add(n);
+                return n;
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, GroupWriteQueue.await(futures.get(i)));
+        }
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void failingCommandDoesNotFailTheRestOfItsBatch() {
+        // Hold the group's worker so the next commands queue up into one batch
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<Void> blocker = queue.submit(groupId, release::join);
+
+        List<CompletableFuture<Integer>> good = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            good.add(queue.submit(groupId, () -> {
+                writer.apply(groupId, Collections.singletonList(delta("u1", "u0", "1.00")));
+                return n;
+            }));
+        }
+        CompletableFuture<Integer> bad = queue.submit(groupId, () -> {
+            writer.apply(groupId, Collections.singletonList(delta("u1", "u0", "100.00")));
+            throw new IllegalStateException("rejected");
+        });
+        long retriedBefore = queue.getRetried();
+        release.complete(null);
+
+        GroupWriteQueue.await(blocker);
+        for (int i = 0; i < good.size(); i++) {
+            assertEquals(i, GroupWriteQueue.await(good.get(i)));
+        }
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> GroupWriteQueue.await(bad));
+        assertEquals("rejected", failure.getMessage());
+        assertTrue(queue.getRetried() > retriedBefore, "batch was not rerun command by command");
+
+        // Only the good commands' deltas were committed
+        assertAmount("5.00", dao.findByUsers(groupId, "u1", "u0").getNetBalance());
+    }
+
+    @Test
+    void writesFromManyThreadsAllLand() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int target = i % 2 == 0 ? groupId : otherGroupId;
+                String debtor = target == groupId ? "u" + (1 + i / 2 % 2) : "u3";
+                calls.add(callers.submit(() -> GroupWriteQueue.await(queue.submit(target, () -> {
+                    writer.apply(target, Collections.singletonList(delta(debtor, "u0", "0.25")));
+                    return null;
+                }))));
+            }
+            for (Future<?> call : calls) {
+                call.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        assertAmount("50.00", total(groupId));
+        assertAmount("50.00", total(otherGroupId));
+        assertAmount("25.00", dao.findByUsers(groupId, "u1", "u0").getNetBalance());
+        assertAmount("25.00", dao.findByUsers(groupId, "u2", "u0").getNetBalance());
+    }
+
+    @Test
+    void runsInlineInsideATransaction() {
+        Thread caller = Thread.currentThread();
+        Thread ran = TransactionTemplate.inTransaction(() -> {
+            CompletableFuture<Thread> future = queue.submit(groupId, Thread::currentThread);
+            assertTrue(future.isDone());
+            return GroupWriteQueue.await(future);
+        });
+        assertSame(caller, ran);
+    }
+
+    private BigDecimal total(int group) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Settlement row : dao.findByGroup(group)) {
+            total = total.add(row.getNetBalance());
+        }
+        return total;
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " vs " + actual);
+    }
+
+    private static SettlementDelta delta(String from, String to, String amount) {
+        return new SettlementDelta(from, to, new BigDecimal(amount));
+    }
+}
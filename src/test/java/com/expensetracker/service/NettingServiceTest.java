@@ -0,0 +1,102 @@
+package com.expensetracker.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.expensetracker.dao.impl.SettlementDAOImpl;
+import com.expensetracker.dao.impl.TransactionDAOImpl;
+import com.expensetracker.model.Settlement;
+import com.expensetracker.model.Settlement.SettlementStatus;
+import com.expensetracker.model.SettlementDelta;
+import com.expensetracker.model.Transaction;
+import com.expensetracker.util.TestDatabase;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * recordNetPayment() against the in-memory H2 database.
+ */
+class NettingServiceTest {
+
+    private final SettlementDAOImpl dao = new SettlementDAOImpl();
+    private final NettingService nettingService = new NettingService();
+    private int first;
+    private int second;
+    private int third;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(3);
+        first = TestDatabase.createGroup("flat", "u0", "u1");
+        second = TestDatabase.createGroup("trip", "u0", "u1", "u2");
+        third = TestDatabase.createGroup("club", "u1", "u0");
+
+        // u1 owes u0 30 + 25 and is owed 10 back: 45 net
+        dao.applyDeltas(first, Collections.singletonList(delta("u1", "u0", "30.00")));
+        dao.applyDeltas(second, Collections.singletonList(delta("u0", "u1", "10.00")));
+        dao.applyDeltas(third, Collections.singletonList(delta("u1", "u0", "25.00")));
+    }
+
+    @Test
+    void partialNetPaymentClearsCreditsThenPaysOwedRowsInGroupOrder() {
+        Transaction transaction = nettingService.recordNetPayment("u1", "u0", new BigDecimal("25.00"), null);
+
+        // The 10 credit and the 25 paid cover the first group's 30 and 5 of
+        // the third's
+        assertRow(second, "u0", "u1", "0.00", SettlementStatus.SETTLED);
+        assertRow(first, "u1", "u0", "0.00", SettlementStatus.SETTLED);
+        assertRow(third, "u1", "u0", "20.00", SettlementStatus.PARTIAL);
+
+        assertEquals("Net payment across 3 groups", transaction.getNote());
+        List<Transaction> recorded = new TransactionDAOImpl().findByUsers("u1", "u0");
+        assertEquals(1, recorded.size());
+        assertAmount("25.00", recorded.get(0).getAmount());
+
+        List<NettingService.PairNet> nets = nettingService.getNetsForUser("u1");
+        assertEquals(1, nets.size());
+        assertEquals("u1", nets.get(0).fromUserId);
+        assertAmount("20.00", nets.get(0).amount);
+    }
+
+    @Test
+    void paymentOfTheWholeNetSettlesEveryRow() {
+        nettingService.recordNetPayment("u1", "u0", new BigDecimal("45.00"), "all square");
+
+        assertRow(first, "u1", "u0", "0.00", SettlementStatus.SETTLED);
+        assertRow(second, "u0", "u1", "0.00", SettlementStatus.SETTLED);
+        assertRow(third, "u1", "u0", "0.00", SettlementStatus.SETTLED);
+        assertEquals(0, nettingService.getNetsForUser("u1").size());
+    }
+
+    @Test
+    void rejectsMoreThanTheNetOrTheWrongDirection() {
+        assertThrows(IllegalArgumentException.class,
+                () -> nettingService.recordNetPayment("u1", "u0", new BigDecimal("45.01"), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> nettingService.recordNetPayment("u0", "u1", new BigDecimal("5.00"), null));
+
+        // Nothing was written
+        assertRow(first, "u1", "u0", "30.00", SettlementStatus.PENDING);
+        assertRow(second, "u0", "u1", "10.00", SettlementStatus.PENDING);
+        assertEquals(0, new TransactionDAOImpl().findByUsers("u1", "u0").size());
+    }
+
+    private void assertRow(int groupId, String from, String to, String amount, SettlementStatus status) {
+        Settlement row = dao.findByUsers(groupId, from, to);
+        assertNotNull(row, "no row " + from + " -> " + to + " in group " + groupId);
+        assertAmount(amount, row.getNetBalance());
+        assertEquals(status, row.getStatus(), from + " -> " + to + " in group " + groupId);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " vs " + actual);
+    }
+
+    private static SettlementDelta delta(String from, String to, String amount) {
+        return new SettlementDelta(from, to, new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,134 @@
+package com.expensetracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ConnectionPool over its own in-memory H2 database.
+ */
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:connection_pool_test;DB_CLOSE_DELAY=-1";
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS items (id INT PRIMARY KEY)");
+            stmt.executeUpdate("DELETE FROM items");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(ConnectionPool::close);
+    }
+
+    @Test
+    void releaseRollsBackAndRestoresAutoCommit() throws SQLException {
+        ConnectionPool pool = pool(0, 1, 1000, 60_000);
+
+        Connection conn = pool.borrow();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO items (id) VALUES (1)");
+        }
+        conn.close();
+
+        // Same physical connection, as there is only one
+        try (Connection again = pool.borrow(); Statement stmt = again.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            assertTrue(again.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsed() throws SQLException {
+        ConnectionPool pool = pool(0, 2, 1000, 60_000);
+
+        Connection conn = pool.borrow();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertThrows(SQLException.class, () -> conn.setAutoCommit(false));
+
+        // A second close() does not return the connection twice
+        Connection other = pool.borrow();
+        conn.close();
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+        other.close();
+    }
+
+    @Test
+    void borrowTimesOutWhenThePoolIsExhausted() throws SQLException {
+        ConnectionPool pool = pool(0, 1, 100, 60_000);
+
+        Connection held = pool.borrow();
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        assertTrue(System.nanoTime() - start >= 100_000_000L);
+
+        held.close();
+        try (Connection conn = pool.borrow()) {
+            assertEquals(1, pool.getActiveCount());
+        }
+    }
+
+    @Test
+    void idleConnectionsAreEvictedDownToMinSize() throws Exception {
+        ConnectionPool pool = pool(2, 4, 1000, 200);
+
+        // Housekeeping fills the pool up to minSize...
+        await(() -> pool.getTotalCount() == 2);
+        assertEquals(2, pool.getIdleCount());
+
+        List<Connection> borrowed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            borrowed.add(pool.borrow());
+        }
+        for (Connection conn : borrowed) {
+            conn.close();
+        }
+        assertEquals(4, pool.getIdleCount());
+
+        // ...and evicts what has been idle longer than idleTimeoutMs
+        await(() -> pool.getTotalCount() == 2);
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    private ConnectionPool pool(int minSize, int maxSize, long borrowTimeoutMs, long idleTimeoutMs) {
+        ConnectionPool pool = new ConnectionPool(() -> DriverManager.getConnection(URL),
+                minSize, maxSize, borrowTimeoutMs, idleTimeoutMs, 0, false, 1, 0);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.expensetracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripKeepsNanoseconds() {
+        Timestamp createdAt = Timestamp.valueOf("2024-03-01 12:34:56.123456789");
+        PageCursor cursor = PageCursor.decode(new PageCursor(createdAt, 42).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertEquals(123456789, cursor.getCreatedAt().getNanos());
+        assertEquals(42, cursor.getId());
+    }
+
+    @Test
+    void roundTripBeforeTheEpoch() {
+        Timestamp createdAt = Timestamp.valueOf("1969-12-31 23:59:59.5");
+        assertEquals(createdAt, PageCursor.decode(new PageCursor(createdAt, 1).encode()).getCreatedAt());
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        for (int id = 0; id < 500; id++) {
+            String token = new PageCursor(new Timestamp(1_700_000_000_000L + id * 7919L), id).encode();
+            assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        }
+    }
+
+    @Test
+    void missingTokenMeansFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("  "));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("1:2")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("x:0:1")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encode("1:2000000000:1")));
+    }
+
+    @Test
+    void clampsLimit() {
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.clampLimit(null));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.clampLimit(0));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.clampLimit(-5));
+        assertEquals(1, PageCursor.clampLimit(1));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.clampLimit(PageCursor.MAX_LIMIT + 1));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
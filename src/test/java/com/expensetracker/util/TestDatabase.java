@@ -0,0 +1,82 @@
+package com.expensetracker.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Test data for the in-memory database (src/test/resources/db.properties).
+ *
+ * All test classes share one database; each test starts from reset(). Group
+ * IDs keep counting up across resets, so caches keyed by group ID never see
+ * a stale group.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Delete all rows, then add users u0..u(userCount - 1).
+     */
+    public static void reset(int userCount) {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM settlements");
+            stmt.executeUpdate("DELETE FROM transactions");
+            stmt.executeUpdate("DELETE FROM expense_participants");
+            stmt.executeUpdate("DELETE FROM expenses");
+            stmt.executeUpdate("DELETE FROM group_members");
+            stmt.executeUpdate("DELETE FROM `groups`");
+            stmt.executeUpdate("DELETE FROM users");
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO users (phone_number, name, email) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < userCount; i++) {
+                    insert.setString(1, "u" + i);
+                    insert.setString(2, "User " + i);
+                    insert.setString(3, "u" + i + "@example.com");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reset test database", e);
+        }
+    }
+
+    /**
+     * Create a group created by the first member, with all given members.
+     *
+     * @return the new group ID
+     */
+    public static int createGroup(String name, String... members) {
+        try (Connection conn = DBUtil.getConnection()) {
+            int groupId;
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO `groups` (name, description, created_by) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                insert.setString(1, name);
+                insert.setString(2, "test group");
+                insert.setString(3, members[0]);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    groupId = keys.getInt(1);
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO group_members (group_id, user_id) VALUES (?, ?)")) {
+                for (String member : members) {
+                    insert.setInt(1, groupId);
+                    insert.setString(2, member);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            return groupId;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test group", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.expensetracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TransactionRetry against the in-memory H2 database.
+ */
+class TransactionRetryTest {
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(0);
+    }
+
+    @Test
+    void serializationFailuresAreRetriedUntilTheWorkSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+        long retriesBefore = TransactionRetry.getRetries();
+
+        String result = TransactionRetry.inTransaction(() -> {
+            insertUser("u" + attempts.get());
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Transaction rolled back",
+                        new SQLException("Deadlock found", "40001"));
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertTrue(TransactionRetry.getRetries() - retriesBefore >= 2);
+        // Only the last attempt's work was committed
+        assertEquals(1, userCount());
+    }
+
+    @Test
+    void optimisticConflictsAreRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        TransactionRetry.inTransaction(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ConcurrentUpdateException("settlement changed");
+            }
+            return null;
+        });
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void otherFailuresAreThrownAtOnce() {
+        AtomicInteger attempts = new AtomicInteger();
+        IllegalArgumentException failure = new IllegalArgumentException("bad amount");
+
+        assertSame(failure, assertThrows(IllegalArgumentException.class, () -> TransactionRetry.inTransaction(() -> {
+            attempts.incrementAndGet();
+            throw failure;
+        })));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        long exhaustedBefore = TransactionRetry.getExhausted();
+
+        assertThrows(ConcurrentUpdateException.class, () -> TransactionRetry.inTransaction(() -> {
+            attempts.incrementAndGet();
+            throw new ConcurrentUpdateException("always loses");
+        }));
+
+        // db.retry.maxAttempts is not set for the tests: the default of 5
+        assertEquals(5, attempts.get());
+        assertTrue(TransactionRetry.getExhausted() > exhaustedBefore);
+    }
+
+    @Test
+    void joinsAnOuterTransactionWithoutRetrying() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> TransactionTemplate.inTransaction(() ->
+                TransactionRetry.inTransaction(() -> {
+                    attempts.incrementAndGet();
+                    throw new ConcurrentUpdateException("inner conflict");
+                })));
+
+        assertEquals(1, attempts.get());
+    }
+
+    private static void insertUser(String phone) {
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO users (phone_number, name, email) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, phone);
+            pstmt.setString(2, "User " + phone);
+            pstmt.setString(3, phone + "@example.com");
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int userCount() {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.expensetracker.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TransactionTemplate against the in-memory H2 database.
+ */
+class TransactionTemplateTest {
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(0);
+    }
+
+    @Test
+    void nestedCallsJoinTheOuterTransaction() {
+        TransactionTemplate.inTransaction(() -> {
+            Connection outer = connection();
+            Connection inner = TransactionTemplate.inTransaction(() -> {
+                assertTrue(insertUser("u1"));
+                return connection();
+            });
+            assertSame(outer, inner);
+            return null;
+        });
+        assertEquals(1, userCount());
+
+        // The inner work is rolled back with the outer transaction
+        assertThrows(IllegalArgumentException.class, () -> TransactionTemplate.inTransaction(() -> {
+            TransactionTemplate.inTransaction(() -> insertUser("u2"));
+            throw new IllegalArgumentException("outer failed");
+        }));
+        assertEquals(1, userCount());
+    }
+
+    @Test
+    void exceptionCaughtFromANestedCallStillRollsBack() {
+        assertThrows(IllegalStateException.class, () -> TransactionTemplate.inTransaction(() -> {
+            insertUser("u1");
+            try {
+                TransactionTemplate.inTransaction(() -> {
+                    throw new IllegalArgumentException("inner failed");
+                });
+            } catch (IllegalArgumentException e) {
+                // swallowed by the caller
+            }
+            return null;
+        }));
+        assertEquals(0, userCount());
+    }
+
+    @Test
+    void swallowedSqlExceptionMarksTheTransactionRollbackOnly() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> TransactionTemplate.inTransaction(() -> {
+                    assertTrue(insertUser("u1"));
+                    // Duplicate key: logged and swallowed, as the DAOs do
+                    assertFalse(insertUser("u1"));
+                    return null;
+                }));
+
+        assertInstanceOf(SQLException.class, failure.getCause());
+        assertEquals(0, userCount());
+    }
+
+    @Test
+    void commitHooksRunOnlyAfterACommit() {
+        List<String> ran = new ArrayList<>();
+        TransactionTemplate.inTransaction(() -> {
+            TransactionTemplate.onCompletion(() -> ran.add("completion"));
+            TransactionTemplate.onCommit(() -> ran.add("commit"));
+            insertUser("u1");
+            assertTrue(ran.isEmpty());
+            return null;
+        });
+        assertEquals(Arrays.asList("commit", "completion"), ran);
+
+        ran.clear();
+        assertThrows(IllegalStateException.class, () -> TransactionTemplate.inTransaction(() -> {
+            TransactionTemplate.onCommit(() -> ran.add("commit"));
+            TransactionTemplate.onCompletion(() -> ran.add("completion"));
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(Arrays.asList("completion"), ran);
+        assertFalse(TransactionTemplate.isActive());
+    }
+
+    @Test
+    void closeAndCommitOnTheBoundConnectionAreIgnored() {
+        assertThrows(IllegalStateException.class, () -> TransactionTemplate.inTransaction(() -> {
+            insertUser("u1");
+            try {
+                Connection conn = connection();
+                conn.commit();
+                conn.setAutoCommit(true);
+                conn.close();
+                assertFalse(conn.isClosed());
+            } catch (SQLException e) {
+                throw new AssertionError(e);
+            }
+            // Still the same open transaction
+            assertTrue(insertUser("u2"));
+            assertEquals(2, userCount());
+            throw new IllegalStateException("roll back");
+        }));
+        assertEquals(0, userCount());
+    }
+
+    @Test
+    void hooksRunImmediatelyOutsideATransaction() {
+        List<String> ran = new ArrayList<>();
+        TransactionTemplate.onCommit(() -> ran.add("commit"));
+        TransactionTemplate.onCompletion(() -> ran.add("completion"));
+        assertEquals(Arrays.asList("commit", "completion"), ran);
+    }
+
+    private static Connection connection() {
+        try {
+            return DBUtil.getConnection();
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Written like a DAO method: errors are logged, not thrown
+    private static boolean insertUser(String phone) {
+        try (Connection conn = DBUtil.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO users (phone_number, name, email) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, phone);
+            pstmt.setString(2, "User " + phone);
+            pstmt.setString(3, phone + "@example.com");
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            System.err.println("Insert failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static int userCount() {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+}